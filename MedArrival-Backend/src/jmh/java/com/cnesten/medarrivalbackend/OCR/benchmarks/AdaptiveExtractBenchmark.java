@@ -0,0 +1,62 @@
+package com.cnesten.medarrivalbackend.OCR.benchmarks;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.io.ByteArrayInputStream;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * End-to-end {@code PdfService.adaptiveExtract} on the corpus, with Tesseract. "text" documents keep
+ * their text layer, "scanned" ones are the same pages as images and go through OCR. Needs the
+ * Tesseract native library and the traineddata under ocr.var.path.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.MINUTES)
+@Warmup(iterations = 2, time = 10)
+@Measurement(iterations = 3, time = 20)
+@Fork(1)
+public class AdaptiveExtractBenchmark {
+    // Scan resolution of the "scanned" variant, a common office scanner setting
+    private static final int SCAN_DPI = 200;
+
+    @Param({"invoice-01", "invoice-03", "invoice-04"})
+    public String document;
+
+    @Param({"text", "scanned"})
+    public String variant;
+
+    @Param({"fra"})
+    public String language;
+
+    private OcrBenchmarkFixtures.Pipeline pipeline;
+    private byte[] pdf;
+
+    @Setup
+    public void setUp() throws Exception {
+        pipeline = new OcrBenchmarkFixtures.Pipeline();
+        byte[] original = OcrBenchmarkFixtures.corpus(document);
+        pdf = "scanned".equals(variant) ? OcrBenchmarkFixtures.scanned(original, SCAN_DPI) : original;
+    }
+
+    @TearDown
+    public void tearDown() {
+        pipeline.close();
+    }
+
+    @Benchmark
+    public String adaptiveExtract() {
+        return pipeline.pdfService.adaptiveExtract(new ByteArrayInputStream(pdf), language, null);
+    }
+}
@@ -0,0 +1,49 @@
+package com.cnesten.medarrivalbackend.OCR.benchmarks;
+
+import com.cnesten.medarrivalbackend.OCR.Enums.BinarizationMethod;
+import com.cnesten.medarrivalbackend.OCR.services.Preprocessing.BinarizationEngine;
+import org.apache.pdfbox.Loader;
+import org.apache.pdfbox.pdmodel.PDDocument;
+import org.apache.pdfbox.rendering.ImageType;
+import org.apache.pdfbox.rendering.PDFRenderer;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+
+import java.awt.image.BufferedImage;
+import java.io.IOException;
+import java.util.concurrent.TimeUnit;
+
+// Binarization of a rendered invoice page, the step every OCR pass starts with
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+public class BinarizationBenchmark {
+
+    @Param({"FIXED", "OTSU", "SAUVOLA"})
+    public BinarizationMethod method;
+
+    @Param({"150", "300"})
+    public int dpi;
+
+    private BinarizationEngine binarizationEngine;
+    private BufferedImage page;
+
+    @Setup
+    public void setUp() throws IOException {
+        binarizationEngine = new BinarizationEngine(OcrBenchmarkFixtures.properties());
+        try (PDDocument document = Loader.loadPDF(OcrBenchmarkFixtures.corpus("invoice-01"))) {
+            page = new PDFRenderer(document).renderImageWithDPI(0, dpi, ImageType.GRAY);
+        }
+    }
+
+    @Benchmark
+    public BufferedImage binarize() {
+        return binarizationEngine.binarize(page, method);
+    }
+}
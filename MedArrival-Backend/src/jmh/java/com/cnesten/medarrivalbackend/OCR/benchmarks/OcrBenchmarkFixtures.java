@@ -0,0 +1,164 @@
+package com.cnesten.medarrivalbackend.OCR.benchmarks;
+
+import com.cnesten.medarrivalbackend.OCR.Config.OcrExecutorConfig;
+import com.cnesten.medarrivalbackend.OCR.Config.OcrProperties;
+import com.cnesten.medarrivalbackend.OCR.services.DocumentSpool;
+import com.cnesten.medarrivalbackend.OCR.services.Engine.TesseractPool;
+import com.cnesten.medarrivalbackend.OCR.services.FairPageScheduler;
+import com.cnesten.medarrivalbackend.OCR.services.FileProcessingService;
+import com.cnesten.medarrivalbackend.OCR.services.FileProcessor.ImageProcessor;
+import com.cnesten.medarrivalbackend.OCR.services.FileProcessor.PdfProcessor;
+import com.cnesten.medarrivalbackend.OCR.services.LanguageDetectionService;
+import com.cnesten.medarrivalbackend.OCR.services.LanguageProbeService;
+import com.cnesten.medarrivalbackend.OCR.services.LayoutService;
+import com.cnesten.medarrivalbackend.OCR.services.OcrMetrics;
+import com.cnesten.medarrivalbackend.OCR.services.OcrService;
+import com.cnesten.medarrivalbackend.OCR.services.PdfService;
+import com.cnesten.medarrivalbackend.OCR.services.Preprocessing.BinarizationEngine;
+import com.cnesten.medarrivalbackend.OCR.services.Preprocessing.ImageIntake;
+import com.cnesten.medarrivalbackend.OCR.services.TextQualityAnalyzer;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.apache.pdfbox.Loader;
+import org.apache.pdfbox.pdmodel.PDDocument;
+import org.apache.pdfbox.pdmodel.PDPage;
+import org.apache.pdfbox.pdmodel.PDPageContentStream;
+import org.apache.pdfbox.pdmodel.graphics.image.LosslessFactory;
+import org.apache.pdfbox.pdmodel.graphics.image.PDImageXObject;
+import org.apache.pdfbox.rendering.ImageType;
+import org.apache.pdfbox.rendering.PDFRenderer;
+import org.apache.pdfbox.text.PDFTextStripper;
+import org.springframework.boot.context.properties.bind.Binder;
+import org.springframework.core.env.StandardEnvironment;
+import org.springframework.core.io.support.ResourcePropertySource;
+import org.springframework.scheduling.concurrent.ThreadPoolTaskExecutor;
+
+import java.awt.image.BufferedImage;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.UncheckedIOException;
+import java.lang.reflect.Field;
+import java.nio.charset.StandardCharsets;
+
+/**
+ * Corpus and service wiring shared by the benchmarks. Services are built by hand from the
+ * application's own ocr.* properties, without a Spring context, caches or database, so a
+ * benchmark measures the work itself and never a cache hit.
+ */
+final class OcrBenchmarkFixtures {
+    private OcrBenchmarkFixtures() {
+    }
+
+    // Anonymized sample invoices under src/jmh/resources/corpus, all names and numbers are fictitious
+    static byte[] corpus(String name) {
+        try (InputStream inputStream = OcrBenchmarkFixtures.class.getResourceAsStream("/corpus/" + name + ".pdf")) {
+            if (inputStream == null) {
+                throw new IllegalArgumentException("Unknown corpus document: " + name);
+            }
+            return inputStream.readAllBytes();
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+
+    static String groundTruth(String name) {
+        try (InputStream inputStream = OcrBenchmarkFixtures.class.getResourceAsStream("/corpus/" + name + ".gt.txt")) {
+            if (inputStream == null) {
+                throw new IllegalArgumentException("No ground truth for corpus document: " + name);
+            }
+            return new String(inputStream.readAllBytes(), StandardCharsets.UTF_8);
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+
+    static String text(byte[] pdf) throws IOException {
+        try (PDDocument document = Loader.loadPDF(pdf)) {
+            return new PDFTextStripper().getText(document);
+        }
+    }
+
+    // The same document with its text layer replaced by page images, as a scanner would deliver it
+    static byte[] scanned(byte[] pdf, int dpi) throws IOException {
+        try (PDDocument source = Loader.loadPDF(pdf);
+             PDDocument scan = new PDDocument()) {
+            PDFRenderer renderer = new PDFRenderer(source);
+            for (int pageIndex = 0; pageIndex < source.getNumberOfPages(); pageIndex++) {
+                PDPage sourcePage = source.getPage(pageIndex);
+                BufferedImage image = renderer.renderImageWithDPI(pageIndex, dpi, ImageType.GRAY);
+
+                PDPage page = new PDPage(sourcePage.getMediaBox());
+                scan.addPage(page);
+                PDImageXObject pageImage = LosslessFactory.createFromImage(scan, image);
+                try (PDPageContentStream content = new PDPageContentStream(scan, page)) {
+                    content.drawImage(pageImage, 0, 0, page.getMediaBox().getWidth(), page.getMediaBox().getHeight());
+                }
+            }
+
+            ByteArrayOutputStream output = new ByteArrayOutputStream();
+            scan.save(output);
+            return output.toByteArray();
+        }
+    }
+
+    static OcrProperties properties() throws IOException {
+        return Binder.get(environment()).bind("ocr", OcrProperties.class).orElseGet(OcrProperties::new);
+    }
+
+    static String tessdataPath() throws IOException {
+        return environment().getRequiredProperty("ocr.var.path");
+    }
+
+    // application.properties, overridable with -Docr.<property>=... like the application itself
+    private static StandardEnvironment environment() throws IOException {
+        StandardEnvironment environment = new StandardEnvironment();
+        environment.getPropertySources().addLast(new ResourcePropertySource("classpath:application.properties"));
+        return environment;
+    }
+
+    // Everything FileProcessingService needs, Tesseract included
+    static final class Pipeline implements AutoCloseable {
+        final OcrProperties properties;
+        final TesseractPool tesseractPool;
+        final ThreadPoolTaskExecutor pageExecutor;
+        final PdfService pdfService;
+        final FileProcessingService fileProcessingService;
+
+        Pipeline() throws IOException, ReflectiveOperationException {
+            properties = properties();
+            SimpleMeterRegistry meterRegistry = new SimpleMeterRegistry();
+            OcrMetrics ocrMetrics = new OcrMetrics(meterRegistry);
+
+            tesseractPool = new TesseractPool(properties, meterRegistry);
+            // Injected with @Value in the application
+            Field dataPath = TesseractPool.class.getDeclaredField("PATH");
+            dataPath.setAccessible(true);
+            dataPath.set(tesseractPool, tessdataPath());
+
+            TextQualityAnalyzer textQualityAnalyzer = new TextQualityAnalyzer();
+            LanguageDetectionService languageDetectionService = new LanguageDetectionService(properties);
+            BinarizationEngine binarizationEngine = new BinarizationEngine(properties);
+            ImageIntake imageIntake = new ImageIntake(properties);
+            DocumentSpool documentSpool = new DocumentSpool(properties);
+            LanguageProbeService languageProbeService = new LanguageProbeService(tesseractPool, binarizationEngine,
+                    textQualityAnalyzer, languageDetectionService, properties, documentSpool);
+            OcrService ocrService = new OcrService(languageDetectionService, languageProbeService, tesseractPool,
+                    binarizationEngine, imageIntake, properties, ocrMetrics);
+
+            pageExecutor = new OcrExecutorConfig(properties).ocrPageExecutor();
+            FairPageScheduler fairPageScheduler = new FairPageScheduler(properties, pageExecutor);
+            pdfService = new PdfService(ocrService, textQualityAnalyzer, languageDetectionService, languageProbeService,
+                    properties, fairPageScheduler, documentSpool, ocrMetrics);
+            LayoutService layoutService = new LayoutService(ocrService, textQualityAnalyzer, languageDetectionService,
+                    languageProbeService, properties, fairPageScheduler, documentSpool, imageIntake);
+            fileProcessingService = new FileProcessingService(new ImageProcessor(ocrService, layoutService),
+                    new PdfProcessor(pdfService, layoutService));
+        }
+
+        @Override
+        public void close() {
+            pageExecutor.shutdown();
+            tesseractPool.shutdown();
+        }
+    }
+}
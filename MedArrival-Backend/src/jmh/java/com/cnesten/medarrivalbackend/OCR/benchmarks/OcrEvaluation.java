@@ -0,0 +1,273 @@
+package com.cnesten.medarrivalbackend.OCR.benchmarks;
+
+import com.cnesten.medarrivalbackend.OCR.Enums.OcrProfile;
+import com.cnesten.medarrivalbackend.OCR.Enums.PdfExtractionStrategy;
+import com.cnesten.medarrivalbackend.OCR.services.OcrPageListener;
+import com.cnesten.medarrivalbackend.Utils.ByteArrayMultipartFile;
+import com.fasterxml.jackson.core.type.TypeReference;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.SerializationFeature;
+import org.apache.pdfbox.Loader;
+import org.apache.pdfbox.pdmodel.PDDocument;
+import org.apache.pdfbox.rendering.ImageType;
+import org.apache.pdfbox.rendering.PDFRenderer;
+
+import javax.imageio.ImageIO;
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.lang.management.ManagementFactory;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.function.Function;
+import java.util.stream.Collectors;
+
+/**
+ * Recognition quality next to latency for every OCR profile and PDF strategy, over the labelled
+ * corpus listed in src/jmh/resources/corpus/manifest.json (each document with its .gt.txt transcription).
+ * Documents run through {@code FileProcessingService} as uploads do; strategies other than the
+ * adaptive one it always uses go straight to {@code PdfService}. Every PDF is also evaluated as a
+ * scan, and single-page ones as an image upload.
+ * <p>
+ * {@code ./gradlew ocrEvaluation [-PocrBaseline=<previous report.json>]} writes the JSON report and,
+ * given a baseline, fails when a configuration's character or word error rate got worse.
+ * <p>
+ * Latency and CPU time are per page: each document runs alone and its wall time and process CPU
+ * time (all threads, Tesseract included) are divided by its page count.
+ */
+public final class OcrEvaluation {
+    private static final int REPETITIONS = Integer.getInteger("ocr.eval.repetitions", 3);
+    // Absolute error rate increase over the baseline tolerated before the run fails
+    private static final double TOLERANCE = Double.parseDouble(System.getProperty("ocr.eval.tolerance", "0.002"));
+    private static final int SCAN_DPI = 200;
+    // Shared so reference and recognized words map to the same ids
+    private static final Map<String, Integer> WORD_IDS = new HashMap<>();
+
+    private static final ObjectMapper MAPPER = new ObjectMapper()
+            .enable(SerializationFeature.INDENT_OUTPUT)
+            .enable(SerializationFeature.ORDER_MAP_ENTRIES_BY_KEYS);
+
+    private OcrEvaluation() {
+    }
+
+    public static void main(String[] args) throws Exception {
+        if (args.length == 0) {
+            throw new IllegalArgumentException("Usage: OcrEvaluation <report.json> [baseline.json]");
+        }
+
+        List<Input> inputs = loadInputs();
+        List<ConfigurationResult> configurations = new ArrayList<>();
+        try (OcrBenchmarkFixtures.Pipeline pipeline = new OcrBenchmarkFixtures.Pipeline()) {
+            for (OcrProfile profile : OcrProfile.values()) {
+                for (PdfExtractionStrategy strategy : PdfExtractionStrategy.values()) {
+                    configurations.add(evaluate(pipeline, profile, strategy.name(), "pdf", inputs));
+                    configurations.add(evaluate(pipeline, profile, strategy.name(), "scanned", inputs));
+                }
+                configurations.add(evaluate(pipeline, profile, "IMAGE", "image", inputs));
+            }
+        }
+
+        Report report = new Report(Instant.now().toString(), System.getProperty("ocr.eval.build", "local"),
+                REPETITIONS, configurations);
+        Path reportFile = Path.of(args[0]);
+        Files.createDirectories(reportFile.toAbsolutePath().getParent());
+        MAPPER.writeValue(reportFile.toFile(), report);
+        System.out.println("OCR evaluation report written to " + reportFile.toAbsolutePath());
+
+        if (args.length > 1) {
+            List<String> regressions = compare(MAPPER.readValue(Path.of(args[1]).toFile(), Report.class), report);
+            regressions.forEach(System.out::println);
+            if (!regressions.isEmpty()) {
+                System.exit(1);
+            }
+        }
+    }
+
+    private static ConfigurationResult evaluate(OcrBenchmarkFixtures.Pipeline pipeline, OcrProfile profile,
+                                                String strategy, String variant, List<Input> inputs) throws IOException {
+        List<DocumentResult> documents = new ArrayList<>();
+        List<Double> latencies = new ArrayList<>();
+        List<Double> cpuTimes = new ArrayList<>();
+        long charErrors = 0, referenceChars = 0, wordErrors = 0, referenceWords = 0;
+
+        for (Input input : inputs) {
+            if (!input.variant().equals(variant)) continue;
+
+            // First pass warms the engines and the JIT, it is neither timed nor scored
+            run(pipeline, input, profile, strategy);
+
+            String text = null;
+            for (int repetition = 0; repetition < REPETITIONS; repetition++) {
+                long cpuStart = processCpuNanos();
+                long start = System.nanoTime();
+                text = run(pipeline, input, profile, strategy);
+                latencies.add((System.nanoTime() - start) / 1e6 / input.pages());
+                cpuTimes.add((processCpuNanos() - cpuStart) / 1e6 / input.pages());
+            }
+
+            ErrorRate charRate = ErrorRate.of(codePoints(normalize(input.groundTruth())), codePoints(normalize(text)));
+            ErrorRate wordRate = ErrorRate.of(words(normalize(input.groundTruth())), words(normalize(text)));
+            charErrors += charRate.errors();
+            referenceChars += charRate.length();
+            wordErrors += wordRate.errors();
+            referenceWords += wordRate.length();
+            documents.add(new DocumentResult(input.name(), input.kind(), input.pages(), charRate.rate(), wordRate.rate()));
+        }
+
+        return new ConfigurationResult(profile.name(), strategy, variant,
+                referenceChars == 0 ? 0 : (double) charErrors / referenceChars,
+                referenceWords == 0 ? 0 : (double) wordErrors / referenceWords,
+                percentile(latencies, 0.50), percentile(latencies, 0.95),
+                percentile(cpuTimes, 0.50), percentile(cpuTimes, 0.95),
+                documents);
+    }
+
+    private static String run(OcrBenchmarkFixtures.Pipeline pipeline, Input input, OcrProfile profile, String strategy) throws IOException {
+        if ("IMAGE".equals(strategy) || PdfExtractionStrategy.ADAPTIVE.name().equals(strategy)) {
+            return pipeline.fileProcessingService.processFile(
+                    new ByteArrayMultipartFile(input.name(), input.name(), input.contentType(), input.content()),
+                    input.language(), profile);
+        }
+        return pipeline.pdfService.extractTextFromPdf(new ByteArrayInputStream(input.content()),
+                PdfExtractionStrategy.valueOf(strategy), input.language(), profile, OcrPageListener.NONE);
+    }
+
+    // Configurations whose error rates rose past the tolerance, compared by profile, strategy and variant
+    private static List<String> compare(Report baseline, Report current) {
+        Map<String, ConfigurationResult> previous = baseline.configurations().stream()
+                .collect(Collectors.toMap(ConfigurationResult::key, Function.identity()));
+
+        List<String> regressions = new ArrayList<>();
+        for (ConfigurationResult result : current.configurations()) {
+            ConfigurationResult before = previous.get(result.key());
+            if (before == null) continue;
+
+            if (result.cer() > before.cer() + TOLERANCE || result.wer() > before.wer() + TOLERANCE) {
+                regressions.add(String.format("Accuracy regression in %s: CER %.4f -> %.4f, WER %.4f -> %.4f",
+                        result.key(), before.cer(), result.cer(), before.wer(), result.wer()));
+            }
+        }
+        return regressions;
+    }
+
+    private static List<Input> loadInputs() throws IOException {
+        List<CorpusEntry> manifest;
+        try (InputStream inputStream = OcrEvaluation.class.getResourceAsStream("/corpus/manifest.json")) {
+            manifest = MAPPER.readValue(inputStream, new TypeReference<>() {
+            });
+        }
+
+        List<Input> inputs = new ArrayList<>();
+        for (CorpusEntry entry : manifest) {
+            byte[] pdf = OcrBenchmarkFixtures.corpus(entry.name());
+            String groundTruth = OcrBenchmarkFixtures.groundTruth(entry.name());
+            int pages;
+            try (PDDocument document = Loader.loadPDF(pdf)) {
+                pages = document.getNumberOfPages();
+            }
+
+            inputs.add(new Input(entry.name(), entry.kind(), entry.language(), "pdf", "application/pdf", pdf, pages, groundTruth));
+            inputs.add(new Input(entry.name(), entry.kind(), entry.language(), "scanned", "application/pdf",
+                    OcrBenchmarkFixtures.scanned(pdf, SCAN_DPI), pages, groundTruth));
+            if (pages == 1) {
+                inputs.add(new Input(entry.name(), entry.kind(), entry.language(), "image", "image/png",
+                        png(pdf), pages, groundTruth));
+            }
+        }
+        return inputs;
+    }
+
+    private static byte[] png(byte[] pdf) throws IOException {
+        try (PDDocument document = Loader.loadPDF(pdf)) {
+            ByteArrayOutputStream output = new ByteArrayOutputStream();
+            ImageIO.write(new PDFRenderer(document).renderImageWithDPI(0, SCAN_DPI, ImageType.GRAY), "png", output);
+            return output.toByteArray();
+        }
+    }
+
+    // Layout whitespace is not an error: lines are trimmed, inner runs collapsed and blank lines dropped
+    static String normalize(String text) {
+        if (text == null) return "";
+        return text.lines()
+                .map(line -> line.strip().replaceAll("\\s+", " "))
+                .filter(line -> !line.isEmpty())
+                .collect(Collectors.joining("\n"));
+    }
+
+    private static int[] codePoints(String text) {
+        return text.codePoints().toArray();
+    }
+
+    private static int[] words(String text) {
+        return Arrays.stream(text.split("\\s+"))
+                .filter(word -> !word.isEmpty())
+                .mapToInt(word -> WORD_IDS.computeIfAbsent(word, key -> WORD_IDS.size()))
+                .toArray();
+    }
+
+    private static double percentile(List<Double> values, double percentile) {
+        if (values.isEmpty()) return 0;
+        double[] sorted = values.stream().mapToDouble(Double::doubleValue).sorted().toArray();
+        int rank = (int) Math.ceil(percentile * sorted.length);
+        return sorted[Math.max(0, rank - 1)];
+    }
+
+    private static long processCpuNanos() {
+        return ((com.sun.management.OperatingSystemMXBean) ManagementFactory.getOperatingSystemMXBean()).getProcessCpuTime();
+    }
+
+    // Levenshtein distance of the recognized tokens to the reference, over the reference length
+    record ErrorRate(long errors, long length) {
+        static ErrorRate of(int[] reference, int[] hypothesis) {
+            int[] previous = new int[hypothesis.length + 1];
+            int[] current = new int[hypothesis.length + 1];
+            for (int j = 0; j <= hypothesis.length; j++) previous[j] = j;
+
+            for (int i = 1; i <= reference.length; i++) {
+                current[0] = i;
+                for (int j = 1; j <= hypothesis.length; j++) {
+                    int substitution = previous[j - 1] + (reference[i - 1] == hypothesis[j - 1] ? 0 : 1);
+                    current[j] = Math.min(substitution, Math.min(previous[j], current[j - 1]) + 1);
+                }
+                int[] swap = previous;
+                previous = current;
+                current = swap;
+            }
+            return new ErrorRate(previous[hypothesis.length], reference.length);
+        }
+
+        double rate() {
+            return length == 0 ? 0 : (double) errors / length;
+        }
+    }
+
+    record CorpusEntry(String name, String kind, String language) {
+    }
+
+    private record Input(String name, String kind, String language, String variant, String contentType,
+                         byte[] content, int pages, String groundTruth) {
+    }
+
+    record Report(String generatedAt, String build, int repetitions, List<ConfigurationResult> configurations) {
+    }
+
+    // Error rates are micro-averaged over the documents: total edits over total reference length
+    record ConfigurationResult(String profile, String strategy, String variant, double cer, double wer,
+                               double p50LatencyMsPerPage, double p95LatencyMsPerPage,
+                               double p50CpuMsPerPage, double p95CpuMsPerPage,
+                               List<DocumentResult> documents) {
+        String key() {
+            return profile + "/" + strategy + "/" + variant;
+        }
+    }
+
+    record DocumentResult(String name, String kind, int pages, double cer, double wer) {
+    }
+}
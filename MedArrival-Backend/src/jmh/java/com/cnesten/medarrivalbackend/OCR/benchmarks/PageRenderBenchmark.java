@@ -0,0 +1,52 @@
+package com.cnesten.medarrivalbackend.OCR.benchmarks;
+
+import org.apache.pdfbox.Loader;
+import org.apache.pdfbox.pdmodel.PDDocument;
+import org.apache.pdfbox.rendering.ImageType;
+import org.apache.pdfbox.rendering.PDFRenderer;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+
+import java.awt.image.BufferedImage;
+import java.io.IOException;
+import java.util.concurrent.TimeUnit;
+
+// Rendering of a page for OCR at the profile resolutions (FAST, BALANCED, ACCURATE), straight to 8-bit gray
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+public class PageRenderBenchmark {
+
+    @Param({"100", "150", "300"})
+    public int dpi;
+
+    @Param({"text", "scanned"})
+    public String variant;
+
+    private PDDocument document;
+    private PDFRenderer renderer;
+
+    @Setup
+    public void setUp() throws IOException {
+        byte[] pdf = OcrBenchmarkFixtures.corpus("invoice-01");
+        document = Loader.loadPDF("scanned".equals(variant) ? OcrBenchmarkFixtures.scanned(pdf, 200) : pdf);
+        renderer = new PDFRenderer(document);
+    }
+
+    @TearDown
+    public void tearDown() throws IOException {
+        document.close();
+    }
+
+    @Benchmark
+    public BufferedImage render() throws IOException {
+        return renderer.renderImageWithDPI(0, dpi, ImageType.GRAY);
+    }
+}
@@ -0,0 +1,57 @@
+package com.cnesten.medarrivalbackend.OCR.benchmarks;
+
+import org.apache.pdfbox.Loader;
+import org.apache.pdfbox.pdmodel.PDDocument;
+import org.apache.pdfbox.text.PDFTextStripper;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+
+import java.io.IOException;
+import java.util.concurrent.TimeUnit;
+
+// Text layer side of a PDF page as PdfService handles it: opening the document and stripping one page
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+public class PdfTextStripBenchmark {
+
+    @Param({"0", "1", "2"})
+    public int page;
+
+    private byte[] pdf;
+    private PDDocument document;
+
+    @Setup
+    public void setUp() throws IOException {
+        pdf = OcrBenchmarkFixtures.corpus("invoice-04");
+        document = Loader.loadPDF(pdf);
+    }
+
+    @TearDown
+    public void tearDown() throws IOException {
+        document.close();
+    }
+
+    // Every page task opens its own view of the document
+    @Benchmark
+    public int load() throws IOException {
+        try (PDDocument loaded = Loader.loadPDF(pdf)) {
+            return loaded.getNumberOfPages();
+        }
+    }
+
+    @Benchmark
+    public String stripText() throws IOException {
+        PDFTextStripper stripper = new PDFTextStripper();
+        stripper.setStartPage(page + 1);
+        stripper.setEndPage(page + 1);
+        return stripper.getText(document);
+    }
+}
@@ -0,0 +1,40 @@
+package com.cnesten.medarrivalbackend.OCR.benchmarks;
+
+import com.cnesten.medarrivalbackend.OCR.DTO.ReceiptExtractionDTO;
+import com.cnesten.medarrivalbackend.OCR.services.Extraction.ReceiptExtractionService;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+
+import java.io.IOException;
+import java.util.concurrent.TimeUnit;
+
+// Receipt field and line item extraction on the text of each corpus invoice
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+public class ReceiptExtractionBenchmark {
+
+    @Param({"invoice-01", "invoice-02", "invoice-03", "invoice-04"})
+    public String document;
+
+    private ReceiptExtractionService receiptExtractionService;
+    private String text;
+
+    @Setup
+    public void setUp() throws IOException {
+        receiptExtractionService = new ReceiptExtractionService(new SimpleMeterRegistry());
+        text = OcrBenchmarkFixtures.text(OcrBenchmarkFixtures.corpus(document));
+    }
+
+    @Benchmark
+    public ReceiptExtractionDTO extract() {
+        return receiptExtractionService.extract(text);
+    }
+}
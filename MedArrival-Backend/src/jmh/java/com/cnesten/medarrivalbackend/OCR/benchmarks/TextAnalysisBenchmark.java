@@ -0,0 +1,54 @@
+package com.cnesten.medarrivalbackend.OCR.benchmarks;
+
+import com.cnesten.medarrivalbackend.OCR.Enums.Language;
+import com.cnesten.medarrivalbackend.OCR.services.LanguageDetectionService;
+import com.cnesten.medarrivalbackend.OCR.services.TextQualityAnalyzer;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+
+import java.io.IOException;
+import java.util.concurrent.TimeUnit;
+
+// The per-page text scans: quality check of a stripped text layer and the language pick of a probe
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+public class TextAnalysisBenchmark {
+    // Bilingual header as printed on some supplier invoices
+    private static final String ARABIC_HEADER = "فاتورة رقم FA24-0100 بتاريخ 12/03/2024\nالمجموع مع احتساب الرسوم\n";
+
+    @Param({"invoice-01", "invoice-04"})
+    public String document;
+
+    @Param({"latin", "mixed"})
+    public String script;
+
+    private TextQualityAnalyzer textQualityAnalyzer;
+    private LanguageDetectionService languageDetectionService;
+    private String text;
+
+    @Setup
+    public void setUp() throws IOException {
+        textQualityAnalyzer = new TextQualityAnalyzer();
+        languageDetectionService = new LanguageDetectionService(OcrBenchmarkFixtures.properties());
+
+        String layer = OcrBenchmarkFixtures.text(OcrBenchmarkFixtures.corpus(document));
+        text = "mixed".equals(script) ? ARABIC_HEADER + layer : layer;
+    }
+
+    @Benchmark
+    public TextQualityAnalyzer.TextQuality analyze() {
+        return textQualityAnalyzer.analyze(text);
+    }
+
+    @Benchmark
+    public Language detectLanguage() {
+        return languageDetectionService.languageFor(textQualityAnalyzer.analyze(text));
+    }
+}
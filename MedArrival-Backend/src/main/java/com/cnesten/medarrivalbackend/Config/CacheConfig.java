@@ -1,29 +1,49 @@
 package com.cnesten.medarrivalbackend.Config;
 
+import com.cnesten.medarrivalbackend.OCR.Config.OcrProperties;
+import com.cnesten.medarrivalbackend.OCR.DTO.OcrLayoutDTO;
+import com.cnesten.medarrivalbackend.OCR.DTO.OcrTextDTO;
+import com.cnesten.medarrivalbackend.OCR.Enums.Language;
+import com.cnesten.medarrivalbackend.OCR.services.OcrMetrics;
+import com.cnesten.medarrivalbackend.OCR.services.OcrResultStore;
+import com.cnesten.medarrivalbackend.OCR.services.PdfService;
+import com.cnesten.medarrivalbackend.OCR.services.TieredOcrCache;
 import com.github.benmanes.caffeine.cache.Caffeine;
 import org.springframework.cache.CacheManager;
 import org.springframework.cache.annotation.EnableCaching;
-import org.springframework.cache.caffeine.CaffeineCacheManager;
+import org.springframework.cache.support.SimpleCacheManager;
 import org.springframework.context.annotation.Bean;
 import org.springframework.context.annotation.Configuration;
 
-import java.util.concurrent.TimeUnit;
+import java.time.Duration;
+import java.util.List;
 
 @Configuration
 @EnableCaching
 public class CacheConfig {
 
     @Bean
-    public Caffeine<Object, Object> caffeineConfig() {
+    public Caffeine<Object, Object> caffeineConfig(OcrProperties ocrProperties) {
+        OcrProperties.Store config = ocrProperties.getStore();
         return Caffeine.newBuilder()
-                .expireAfterWrite(60, TimeUnit.MINUTES)
-                .maximumSize(1000);
+                .expireAfterAccess(config.getMemoryExpiry())
+                .maximumSize(config.getMemoryEntries());
     }
 
     @Bean
-    public CacheManager cacheManager(Caffeine<Object, Object> caffeine) {
-        CaffeineCacheManager cacheManager = new CaffeineCacheManager("ocrCache", "pdfCache");
-        cacheManager.setCaffeine(caffeine);
+    public CacheManager cacheManager(Caffeine<Object, Object> caffeine, OcrResultStore ocrResultStore, OcrMetrics ocrMetrics,
+                                     OcrProperties ocrProperties) {
+        // No identical run is waited on for longer than a whole document may take
+        Duration maxWait = ocrProperties.getDeadlines().getDocument();
+        SimpleCacheManager cacheManager = new SimpleCacheManager();
+        cacheManager.setCaches(List.of(
+                new TieredOcrCache("ocrCache", OcrTextDTO.class, caffeine.build(), ocrResultStore, ocrMetrics, maxWait),
+                // Text with pages abandoned past their deadline is returned but not kept
+                new TieredOcrCache("pdfCache", String.class, caffeine.build(), ocrResultStore, ocrMetrics, maxWait,
+                        value -> !(value instanceof String text && PdfService.isPartial(text))),
+                new TieredOcrCache("languageProbeCache", Language.class, caffeine.build(), ocrResultStore, ocrMetrics, maxWait),
+                new TieredOcrCache("layoutCache", OcrLayoutDTO.class, caffeine.build(), ocrResultStore, ocrMetrics, maxWait)
+        ));
         return cacheManager;
     }
-}
\ No newline at end of file
+}
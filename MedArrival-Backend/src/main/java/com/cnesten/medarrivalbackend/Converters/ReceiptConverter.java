@@ -40,7 +40,7 @@ public class ReceiptConverter {
 
         dto.setReceiptItems(receipt.getReceiptItems().stream()
                 .map(receiptItemConverter::toDTO)
-                .collect(Collectors.toSet()));
+                .collect(Collectors.toList()));
 
         if (receipt.getAttachments() != null) {
             dto.setAttachments(receipt.getAttachments().stream()
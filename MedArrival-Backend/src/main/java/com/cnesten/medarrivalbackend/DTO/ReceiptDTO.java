@@ -3,7 +3,9 @@ package com.cnesten.medarrivalbackend.DTO;
 import lombok.Data;
 
 import java.time.LocalDateTime;
+import java.util.ArrayList;
 import java.util.HashSet;
+import java.util.List;
 import java.util.Set;
 
 @Data
@@ -25,7 +27,7 @@ public class ReceiptDTO {
     private String deliveryRef;
     private Boolean deliveryReceived;
     private ClientDTO client;
-    private Set<ReceiptItemDTO> receiptItems = new HashSet<>();
+    private List<ReceiptItemDTO> receiptItems = new ArrayList<>();
     private Set<ReceiptAttachmentDTO> attachments = new HashSet<>();
     private LocalDateTime createdAt;
     private LocalDateTime updatedAt;
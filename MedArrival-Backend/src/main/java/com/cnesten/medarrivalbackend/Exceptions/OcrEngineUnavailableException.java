@@ -0,0 +1,7 @@
+package com.cnesten.medarrivalbackend.Exceptions;
+
+public class OcrEngineUnavailableException extends RuntimeException {
+    public OcrEngineUnavailableException(String message) {
+        super(message);
+    }
+}
@@ -0,0 +1,7 @@
+package com.cnesten.medarrivalbackend.Exceptions;
+
+public class OcrFailedException extends RuntimeException {
+    public OcrFailedException(String message, Throwable cause) {
+        super(message, cause);
+    }
+}
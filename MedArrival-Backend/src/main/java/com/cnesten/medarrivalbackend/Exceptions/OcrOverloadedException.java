@@ -0,0 +1,16 @@
+package com.cnesten.medarrivalbackend.Exceptions;
+
+import java.time.Duration;
+
+public class OcrOverloadedException extends RuntimeException {
+    private final Duration retryAfter;
+
+    public OcrOverloadedException(String message, Duration retryAfter) {
+        super(message);
+        this.retryAfter = retryAfter;
+    }
+
+    public Duration getRetryAfter() {
+        return retryAfter;
+    }
+}
@@ -0,0 +1,7 @@
+package com.cnesten.medarrivalbackend.Exceptions;
+
+public class OcrTimeoutException extends RuntimeException {
+    public OcrTimeoutException(String message) {
+        super(message);
+    }
+}
@@ -0,0 +1,60 @@
+package com.cnesten.medarrivalbackend.OCR.Config;
+
+import lombok.RequiredArgsConstructor;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.scheduling.annotation.EnableScheduling;
+import org.springframework.scheduling.concurrent.ThreadPoolTaskExecutor;
+
+import java.util.concurrent.ThreadPoolExecutor;
+
+@Configuration
+@EnableScheduling
+@RequiredArgsConstructor
+public class OcrExecutorConfig {
+    private final OcrProperties ocrProperties;
+
+    @Bean(name = "ocrPageExecutor")
+    public ThreadPoolTaskExecutor ocrPageExecutor() {
+        OcrProperties.Executor config = ocrProperties.getExecutor();
+
+        ThreadPoolTaskExecutor executor = new ThreadPoolTaskExecutor();
+        executor.setCorePoolSize(config.getThreads());
+        executor.setMaxPoolSize(config.getThreads());
+        // A thread finishing a page queues the next one before it is free again
+        executor.setQueueCapacity(Math.max(config.getQueueCapacity(), config.getThreads()));
+        executor.setThreadNamePrefix("OcrPage-");
+        // FairPageScheduler keeps at most one page per thread queued, it requeues what is rejected
+        // rather than running it on the submitting (request or page) thread
+        executor.setRejectedExecutionHandler(new ThreadPoolExecutor.AbortPolicy());
+        executor.setWaitForTasksToCompleteOnShutdown(true);
+        executor.initialize();
+        return executor;
+    }
+
+    @Bean(name = "ocrJobExecutor")
+    public ThreadPoolTaskExecutor ocrJobExecutor() {
+        OcrProperties.Jobs config = ocrProperties.getJobs();
+
+        ThreadPoolTaskExecutor executor = new ThreadPoolTaskExecutor();
+        executor.setCorePoolSize(config.getWorkers());
+        executor.setMaxPoolSize(config.getWorkers());
+        executor.setQueueCapacity(config.getQueueCapacity());
+        executor.setThreadNamePrefix("OcrJob-");
+        executor.initialize();
+        return executor;
+    }
+
+    @Bean(name = "ocrBatchExecutor")
+    public ThreadPoolTaskExecutor ocrBatchExecutor() {
+        OcrProperties.Batch config = ocrProperties.getBatch();
+
+        ThreadPoolTaskExecutor executor = new ThreadPoolTaskExecutor();
+        executor.setCorePoolSize(config.getDocuments());
+        executor.setMaxPoolSize(config.getDocuments());
+        executor.setQueueCapacity(config.getQueueCapacity());
+        executor.setThreadNamePrefix("OcrBatch-");
+        executor.initialize();
+        return executor;
+    }
+}
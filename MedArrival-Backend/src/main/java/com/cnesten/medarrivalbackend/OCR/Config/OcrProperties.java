@@ -0,0 +1,272 @@
+package com.cnesten.medarrivalbackend.OCR.Config;
+
+import com.cnesten.medarrivalbackend.OCR.Enums.BinarizationMethod;
+import com.cnesten.medarrivalbackend.OCR.Enums.Language;
+import com.cnesten.medarrivalbackend.OCR.Enums.OcrProfile;
+import com.cnesten.medarrivalbackend.OCR.Enums.PdfAccessMode;
+import com.cnesten.medarrivalbackend.OCR.Enums.PdfExtractionStrategy;
+import com.cnesten.medarrivalbackend.OCR.Enums.PdfStreamCache;
+import lombok.Data;
+import org.springframework.boot.context.properties.ConfigurationProperties;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.util.unit.DataSize;
+
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.EnumMap;
+import java.util.List;
+import java.util.Map;
+
+@Data
+@Configuration
+@ConfigurationProperties(prefix = "ocr")
+public class OcrProperties {
+    private static final Profile UNCONFIGURED_PROFILE = new Profile();
+
+    private Pool pool = new Pool();
+    private Executor executor = new Executor();
+    private Jobs jobs = new Jobs();
+    private Batch batch = new Batch();
+    private Admission admission = new Admission();
+    private Store store = new Store();
+    private Preprocessing preprocessing = new Preprocessing();
+    private Pdf pdf = new Pdf();
+    private Probe probe = new Probe();
+    private Confidence confidence = new Confidence();
+    private Warmup warmup = new Warmup();
+    private Deadlines deadlines = new Deadlines();
+    private Intake intake = new Intake();
+
+    // Used when neither the request nor the extraction strategy names a profile
+    private OcrProfile defaultProfile = OcrProfile.BALANCED;
+    private Map<PdfExtractionStrategy, OcrProfile> strategyProfiles = new EnumMap<>(PdfExtractionStrategy.class);
+    private Map<OcrProfile, Profile> profiles = new EnumMap<>(OcrProfile.class);
+
+    // Explicit request profile first, then the strategy default, then the global default
+    public OcrProfile profileFor(OcrProfile requested, PdfExtractionStrategy strategy) {
+        if (requested != null) return requested;
+        if (strategy != null && strategyProfiles.containsKey(strategy)) return strategyProfiles.get(strategy);
+        return defaultProfile;
+    }
+
+    public Profile profile(OcrProfile profile) {
+        return profiles.getOrDefault(profile, UNCONFIGURED_PROFILE);
+    }
+
+    // Engine budget across all pools, see Pool.maxEngines
+    public int maxEngines() {
+        if (pool.getMaxEngines() > 0) {
+            return pool.getMaxEngines();
+        }
+        return Math.max(Runtime.getRuntime().availableProcessors() * 2, warmup.poolCount() * pool.getInitialSize());
+    }
+
+    public BinarizationMethod binarizationFor(OcrProfile profile) {
+        BinarizationMethod method = profile(profile).getBinarization();
+        return method != null ? method : preprocessing.getBinarization();
+    }
+
+    @Data
+    public static class Pool {
+        // Upper bound of engines per language and profile when no explicit size is configured
+        private int defaultSize = Runtime.getRuntime().availableProcessors();
+
+        // Upper bound of engines across all pools, idle engines of other pools make room when it is reached.
+        // 0 means twice the cores, never less than the engines the warm-up initializes
+        private int maxEngines = 0;
+
+        // Engines initialized per warmed-up pool before the node reports ready, see Warmup
+        private int initialSize = 1;
+
+        private Duration borrowTimeout = Duration.ofSeconds(60);
+
+        private Map<Language, Integer> sizes = new EnumMap<>(Language.class);
+
+        public int sizeFor(Language language) {
+            return Math.max(1, sizes.getOrDefault(language, defaultSize));
+        }
+    }
+
+    @Data
+    public static class Executor {
+        // Threads rendering/recognizing PDF pages in parallel
+        private int threads = Runtime.getRuntime().availableProcessors();
+
+        // Pages waiting for a thread, FairPageScheduler never queues more than one per thread
+        private int queueCapacity = 200;
+    }
+
+    @Data
+    public static class Jobs {
+        // Documents processed concurrently by the asynchronous job API
+        private int workers = 2;
+
+        private int queueCapacity = 100;
+
+        // Interval of the sweep re-dispatching queued jobs that are not running yet
+        private Duration dispatchInterval = Duration.ofSeconds(30);
+
+        // Owner recorded on the jobs this node runs, empty for host name and process id, which change on restart.
+        // Set it to a stable name (pod or service name) so a restarted node takes its interrupted jobs back
+        // at once, without it they are picked up when their lease runs out.
+        private String nodeId = "";
+
+        // A running job without a heartbeat for this long is taken over by any node, several dispatch intervals
+        private Duration lease = Duration.ofMinutes(2);
+    }
+
+    @Data
+    public static class Batch {
+        private int maxFiles = 50;
+
+        // Documents of a batch driven concurrently, their pages share the page executor fairly
+        private int documents = 4;
+        private int queueCapacity = 500;
+
+        // Lifetime of the result stream
+        private Duration timeout = Duration.ofMinutes(30);
+    }
+
+    @Data
+    public static class Admission {
+        // Pages admitted at once across all synchronous OCR requests, a document weighs its estimated page count
+        private int maxPages = Runtime.getRuntime().availableProcessors() * 4;
+
+        // PDF bytes counted as one page, the estimate is made from the upload size without opening the file
+        private DataSize bytesPerPage = DataSize.ofKilobytes(256);
+
+        // Share of maxPages one client may hold while others wait
+        private double maxClientShare = 0.5;
+
+        // Requests allowed to wait for capacity, in total and per client, beyond that they get a 429
+        private int maxQueued = 50;
+        private int maxQueuedPerClient = 10;
+        private Duration maxWait = Duration.ofSeconds(30);
+
+        private Duration retryAfter = Duration.ofSeconds(10);
+    }
+
+    @Data
+    public static class Store {
+        // In-memory tier in front of the persistent result store
+        private long memoryEntries = 1000;
+        private Duration memoryExpiry = Duration.ofMinutes(60);
+
+        // Persistent tier, trimmed to both bounds by least recent access
+        private DataSize maxSize = DataSize.ofGigabytes(1);
+        private long maxEntries = 50000;
+        private Duration evictionInterval = Duration.ofMinutes(10);
+    }
+
+    @Data
+    public static class Preprocessing {
+        private BinarizationMethod binarization = BinarizationMethod.SAUVOLA;
+
+        private int fixedThreshold = 128;
+
+        // Window side in pixels, roughly the height of a text line at 150 DPI
+        private int sauvolaWindow = 25;
+        private double sauvolaK = 0.3;
+    }
+
+    @Data
+    public static class Pdf {
+        // Embedded images below this native size are treated as decorative on text pages
+        private int minImageWidth = 300;
+        private int minImageHeight = 100;
+
+        // Share of the page an image must cover to be taken for the scan behind a text layer
+        private double backgroundImageCoverage = 0.8;
+
+        // Uploads are spooled here once and every page opens the file instead of a heap copy, empty for java.io.tmpdir
+        private String spoolDirectory = "";
+        private PdfAccessMode access = PdfAccessMode.MAPPED;
+
+        // Where PDFBox keeps decoded streams of an open document, MIXED spills past streamCacheMemory
+        private PdfStreamCache streamCache = PdfStreamCache.MIXED;
+        private DataSize streamCacheMemory = DataSize.ofMegabytes(8);
+    }
+
+    @Data
+    public static class Probe {
+        // Pages sampled when the language is "auto": text layer when usable, low-res OCR otherwise
+        private int pages = 2;
+        private int dpi = 100;
+
+        // Longest side uploaded images are downscaled to before the probe OCR
+        private int maxDimension = 1200;
+
+        // Share of letters a script needs before its language pack is loaded
+        private double minScriptShare = 0.1;
+
+        // Used when the probe finds no letters at all
+        private Language fallback = Language.ARABE_LATIN;
+    }
+
+    @Data
+    public static class Profile {
+        // Render resolution of PDF pages sent to OCR
+        private int dpi = 150;
+
+        // Tesseract page segmentation (3 = fully automatic without OSD) and engine mode (1 = LSTM only)
+        private int pageSegMode = 3;
+        private int engineMode = 1;
+
+        // Empty keeps ocr.preprocessing.binarization
+        private BinarizationMethod binarization;
+
+        // Sub-directory of ocr.var.path holding the traineddata variant (fast, best), empty for the base directory
+        private String tessdata = "";
+    }
+
+    @Data
+    public static class Confidence {
+        // Pages whose mean word confidence (0-100) falls below this are recognized again
+        private float minPageConfidence = 60;
+        private OcrProfile retryProfile = OcrProfile.ACCURATE;
+
+        // Resolution low-confidence PDF pages are rendered again at
+        private int retryDpi = 300;
+    }
+
+    @Data
+    public static class Warmup {
+        // Off, the node is ready at once and the first requests pay for engine initialization
+        private boolean enabled = true;
+
+        // Pools initialized in the background after startup, empty profiles means the default profile.
+        // The language probe pool is always included.
+        private List<Language> languages = new ArrayList<>(List.of(Language.values()));
+        private List<OcrProfile> profiles = new ArrayList<>();
+
+        // Pause before pools that failed to start are tried again, until they all do
+        private Duration retryInterval = Duration.ofMinutes(1);
+
+        // Pools warmed up, the language probe pool included, which may be one of the others
+        public int poolCount() {
+            return enabled ? languages.size() * Math.max(1, profiles.size()) + 1 : 0;
+        }
+    }
+
+    @Data
+    public static class Deadlines {
+        // Wall time of one page from the moment it starts, also caps a single Tesseract pass
+        private Duration page = Duration.ofSeconds(60);
+
+        // Wall time of a whole document, pages still running past it are reported as timed out
+        private Duration document = Duration.ofMinutes(5);
+    }
+
+    @Data
+    public static class Intake {
+        // Resolution uploaded photos are brought down to, their long side taken as a full page
+        private int targetDpi = 300;
+        private double pageLengthInches = 11.69;
+
+        // Upper bound of the image handed to preprocessing, whatever its resolution
+        private double maxMegapixels = 12;
+
+        // Upper bound of the decoded raster before resampling, at 4 bytes a pixel
+        private double maxDecodeMegapixels = 24;
+    }
+}
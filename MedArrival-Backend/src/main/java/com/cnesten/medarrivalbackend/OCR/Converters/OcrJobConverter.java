@@ -0,0 +1,44 @@
+package com.cnesten.medarrivalbackend.OCR.Converters;
+
+import com.cnesten.medarrivalbackend.OCR.DTO.OcrJobDTO;
+import com.cnesten.medarrivalbackend.OCR.DTO.OcrJobPageDTO;
+import com.cnesten.medarrivalbackend.OCR.Models.OcrJob;
+import com.cnesten.medarrivalbackend.OCR.Models.OcrJobPage;
+import org.springframework.stereotype.Component;
+
+@Component
+public class OcrJobConverter {
+
+    public OcrJobDTO toDTO(OcrJob job, long processedPages) {
+        if (job == null) return null;
+
+        OcrJobDTO dto = new OcrJobDTO();
+        dto.setId(job.getId());
+        dto.setStatus(job.getStatus());
+        dto.setOriginalName(job.getOriginalName());
+        dto.setContentType(job.getContentType());
+        dto.setLanguage(job.getLanguage());
+        dto.setProfile(job.getProfile());
+        dto.setTotalPages(job.getTotalPages());
+        dto.setProcessedPages(processedPages);
+        dto.setErrorMessage(job.getErrorMessage());
+        dto.setCreatedAt(job.getCreatedAt());
+        dto.setStartedAt(job.getStartedAt());
+        dto.setFinishedAt(job.getFinishedAt());
+
+        return dto;
+    }
+
+    public OcrJobPageDTO toDTO(OcrJobPage page) {
+        if (page == null) return null;
+
+        OcrJobPageDTO dto = new OcrJobPageDTO();
+        dto.setPageIndex(page.getPageIndex());
+        dto.setText(page.getText());
+        dto.setConfidence(page.getConfidence());
+        dto.setReprocessed(page.getReprocessed());
+        dto.setCreatedAt(page.getCreatedAt());
+
+        return dto;
+    }
+}
@@ -0,0 +1,15 @@
+package com.cnesten.medarrivalbackend.OCR.DTO;
+
+import com.cnesten.medarrivalbackend.OCR.Enums.OcrJobStatus;
+import lombok.Data;
+
+@Data
+public class OcrBatchResultDTO {
+    private Integer index;  // Position of the file in the request
+    private String fileName;
+    private String contentType;
+    private OcrJobStatus status;
+    private String text;
+    private String errorMessage;
+    private Long durationMillis;
+}
@@ -0,0 +1,24 @@
+package com.cnesten.medarrivalbackend.OCR.DTO;
+
+import com.cnesten.medarrivalbackend.OCR.Enums.OcrJobStatus;
+import com.cnesten.medarrivalbackend.OCR.Enums.OcrProfile;
+import lombok.Data;
+
+import java.time.LocalDateTime;
+import java.util.UUID;
+
+@Data
+public class OcrJobDTO {
+    private UUID id;
+    private OcrJobStatus status;
+    private String originalName;
+    private String contentType;
+    private String language;
+    private OcrProfile profile;
+    private Integer totalPages;
+    private Long processedPages;
+    private String errorMessage;
+    private LocalDateTime createdAt;
+    private LocalDateTime startedAt;
+    private LocalDateTime finishedAt;
+}
@@ -0,0 +1,22 @@
+package com.cnesten.medarrivalbackend.OCR.DTO;
+
+import com.cnesten.medarrivalbackend.OCR.Enums.OcrJobStatus;
+import lombok.Data;
+
+import java.util.UUID;
+
+@Data
+public class OcrJobEventDTO {
+    public enum Type {
+        STATUS,
+        PAGE
+    }
+
+    private UUID jobId;
+    private Type type;
+    private OcrJobStatus status;
+    private Integer pageIndex;
+    private Integer pageCount;
+    private String text;
+    private Float confidence;
+}
@@ -0,0 +1,14 @@
+package com.cnesten.medarrivalbackend.OCR.DTO;
+
+import lombok.Data;
+
+import java.time.LocalDateTime;
+
+@Data
+public class OcrJobPageDTO {
+    private Integer pageIndex;
+    private String text;
+    private Float confidence;
+    private Boolean reprocessed;
+    private LocalDateTime createdAt;
+}
@@ -0,0 +1,64 @@
+package com.cnesten.medarrivalbackend.OCR.DTO;
+
+import com.cnesten.medarrivalbackend.OCR.Enums.LayoutSource;
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.util.ArrayList;
+import java.util.List;
+
+// Boxes are left/top/right/bottom from the top-left corner: PDF points for PDF pages, pixels for images
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+public class OcrLayoutDTO {
+    private List<Page> pages = new ArrayList<>();
+
+    @Data
+    @NoArgsConstructor
+    @AllArgsConstructor
+    public static class Page {
+        private int index;
+        private float width;
+        private float height;
+        private LayoutSource source;
+        private Float confidence;  // Null for text-layer pages
+        private List<Block> blocks = new ArrayList<>();
+    }
+
+    @Data
+    @NoArgsConstructor
+    @AllArgsConstructor
+    public static class Block {
+        private float left;
+        private float top;
+        private float right;
+        private float bottom;
+        private List<Line> lines = new ArrayList<>();
+    }
+
+    @Data
+    @NoArgsConstructor
+    @AllArgsConstructor
+    public static class Line {
+        private float left;
+        private float top;
+        private float right;
+        private float bottom;
+        private String text;
+        private List<Word> words = new ArrayList<>();
+    }
+
+    @Data
+    @NoArgsConstructor
+    @AllArgsConstructor
+    public static class Word {
+        private String text;
+        private Float confidence;
+        private float left;
+        private float top;
+        private float right;
+        private float bottom;
+    }
+}
@@ -0,0 +1,20 @@
+package com.cnesten.medarrivalbackend.OCR.DTO;
+
+import com.cnesten.medarrivalbackend.OCR.Enums.OcrProfile;
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+public class OcrTextDTO {
+    private String text;
+    private Float confidence;  // Mean word confidence 0-100, null when no OCR was needed
+    private OcrProfile profile;
+    private boolean reprocessed;
+
+    public static OcrTextDTO of(String text) {
+        return new OcrTextDTO(text, null, null, false);
+    }
+}
@@ -0,0 +1,17 @@
+package com.cnesten.medarrivalbackend.OCR.DTO;
+
+import com.cnesten.medarrivalbackend.DTO.ReceiptDTO;
+import lombok.Data;
+
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+// Pre-filled receipt for the operator to review, confidences are 0-1
+@Data
+public class ReceiptExtractionDTO {
+    private ReceiptDTO receipt;
+    private Map<String, Float> fieldConfidence = new LinkedHashMap<>();  // By ReceiptDTO property, extracted fields only
+    private List<Float> itemConfidence = new ArrayList<>();  // Same order as receipt.receiptItems
+}
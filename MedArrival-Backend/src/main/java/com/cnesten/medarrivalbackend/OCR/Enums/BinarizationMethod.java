@@ -0,0 +1,7 @@
+package com.cnesten.medarrivalbackend.OCR.Enums;
+
+public enum BinarizationMethod {
+    FIXED,
+    OTSU,
+    SAUVOLA
+}
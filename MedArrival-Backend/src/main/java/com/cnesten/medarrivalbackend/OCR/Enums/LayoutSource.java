@@ -0,0 +1,6 @@
+package com.cnesten.medarrivalbackend.OCR.Enums;
+
+public enum LayoutSource {
+    TEXT_LAYER,
+    OCR
+}
@@ -0,0 +1,8 @@
+package com.cnesten.medarrivalbackend.OCR.Enums;
+
+public enum OcrJobStatus {
+    QUEUED,
+    RUNNING,
+    COMPLETED,
+    FAILED
+}
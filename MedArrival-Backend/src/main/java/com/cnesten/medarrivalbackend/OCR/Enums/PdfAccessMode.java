@@ -0,0 +1,6 @@
+package com.cnesten.medarrivalbackend.OCR.Enums;
+
+public enum PdfAccessMode {
+    MAPPED,
+    BUFFERED
+}
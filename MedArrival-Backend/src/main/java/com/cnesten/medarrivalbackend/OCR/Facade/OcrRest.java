@@ -1,15 +1,40 @@
 package com.cnesten.medarrivalbackend.OCR.Facade;
 
+import com.cnesten.medarrivalbackend.Exceptions.OcrEngineUnavailableException;
+import com.cnesten.medarrivalbackend.Exceptions.OcrFailedException;
+import com.cnesten.medarrivalbackend.Exceptions.OcrOverloadedException;
+import com.cnesten.medarrivalbackend.Exceptions.OcrTimeoutException;
+import com.cnesten.medarrivalbackend.OCR.Converters.OcrJobConverter;
+import com.cnesten.medarrivalbackend.OCR.DTO.OcrJobDTO;
+import com.cnesten.medarrivalbackend.OCR.DTO.OcrJobPageDTO;
+import com.cnesten.medarrivalbackend.OCR.DTO.OcrLayoutDTO;
+import com.cnesten.medarrivalbackend.OCR.DTO.ReceiptExtractionDTO;
+import com.cnesten.medarrivalbackend.OCR.Enums.OcrJobStatus;
+import com.cnesten.medarrivalbackend.OCR.Enums.OcrProfile;
+import com.cnesten.medarrivalbackend.OCR.Models.OcrJob;
 import com.cnesten.medarrivalbackend.OCR.services.CacheControlService;
+import com.cnesten.medarrivalbackend.OCR.services.Extraction.ReceiptExtractionService;
 import com.cnesten.medarrivalbackend.OCR.services.FileProcessingService;
+import com.cnesten.medarrivalbackend.OCR.services.OcrAdmissionController;
+import com.cnesten.medarrivalbackend.OCR.services.OcrBatchService;
+import com.cnesten.medarrivalbackend.OCR.services.OcrJobService;
+import jakarta.servlet.http.HttpServletRequest;
 import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
 import org.springframework.beans.factory.annotation.Value;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.MediaType;
 import org.springframework.http.ResponseEntity;
 import org.springframework.web.bind.annotation.*;
 import org.springframework.web.multipart.MultipartFile;
+import org.springframework.web.servlet.mvc.method.annotation.SseEmitter;
 
 import java.io.IOException;
+import java.util.List;
+import java.util.UUID;
 
+@Slf4j
 @RestController
 @RequiredArgsConstructor
 @RequestMapping("/api/ocr")
@@ -20,17 +45,179 @@ public class OcrRest {
 
     private final FileProcessingService fileProcessingService;
     private final CacheControlService cacheControlService;
+    private final OcrJobService ocrJobService;
+    private final OcrBatchService ocrBatchService;
+    private final OcrAdmissionController ocrAdmissionController;
+    private final ReceiptExtractionService receiptExtractionService;
+    private final OcrJobConverter ocrJobConverter;
 
     @PostMapping("/")
-    public String performOcr(@RequestPart("file") MultipartFile file, @RequestPart("language") String language) {
+    public ResponseEntity<String> performOcr(@RequestPart("file") MultipartFile file,
+                                             @RequestPart(value = "language", required = false) String language,
+                                             @RequestPart(value = "profile", required = false) String profile,
+                                             HttpServletRequest request) {
         try {
-            return fileProcessingService.processFile(file, language);
+            OcrProfile ocrProfile = parseProfile(profile);
+            try (OcrAdmissionController.Permit permit = ocrAdmissionController.admit(
+                    clientId(request), fileProcessingService.estimatePages(file))) {
+                return ResponseEntity.ok(fileProcessingService.processFile(file, language, ocrProfile));
+            }
+        } catch (OcrOverloadedException e) {
+            return tooManyRequests(e);
+        } catch (OcrTimeoutException e) {
+            return ResponseEntity.status(HttpStatus.GATEWAY_TIMEOUT).body(e.getMessage());
+        } catch (OcrEngineUnavailableException e) {
+            return ResponseEntity.status(HttpStatus.SERVICE_UNAVAILABLE).body(e.getMessage());
+        } catch (IllegalArgumentException e) {
+            return ResponseEntity.badRequest().body(e.getMessage());
+        } catch (OcrFailedException e) {
+            log.error("Error processing file {}", file.getOriginalFilename(), e);
+            return ResponseEntity.internalServerError().body(e.getMessage());
         } catch (IOException e) {
-            e.printStackTrace();
-            return "Error processing file";
+            log.error("Error processing file {}", file.getOriginalFilename(), e);
+            return ResponseEntity.internalServerError().body("Error processing file");
         }
     }
 
+    // Pages, blocks, lines and words with their boxes, for callers that locate fields geometrically
+    @PostMapping("/layout")
+    public ResponseEntity<?> performLayoutOcr(@RequestPart("file") MultipartFile file,
+                                              @RequestPart(value = "language", required = false) String language,
+                                              @RequestPart(value = "profile", required = false) String profile,
+                                              HttpServletRequest request) {
+        try {
+            OcrProfile ocrProfile = parseProfile(profile);
+            try (OcrAdmissionController.Permit permit = ocrAdmissionController.admit(
+                    clientId(request), fileProcessingService.estimatePages(file))) {
+                OcrLayoutDTO layout = fileProcessingService.processLayout(file, language, ocrProfile);
+                if (layout == null) {
+                    return ResponseEntity.badRequest().body("Unsupported file type");
+                }
+                return ResponseEntity.ok(layout);
+            }
+        } catch (OcrOverloadedException e) {
+            return tooManyRequests(e);
+        } catch (OcrTimeoutException e) {
+            return ResponseEntity.status(HttpStatus.GATEWAY_TIMEOUT).body(e.getMessage());
+        } catch (OcrEngineUnavailableException e) {
+            return ResponseEntity.status(HttpStatus.SERVICE_UNAVAILABLE).body(e.getMessage());
+        } catch (IllegalArgumentException e) {
+            return ResponseEntity.badRequest().body(e.getMessage());
+        } catch (OcrFailedException e) {
+            log.error("Error processing file {}", file.getOriginalFilename(), e);
+            return ResponseEntity.internalServerError().body(e.getMessage());
+        } catch (IOException e) {
+            log.error("Error processing file {}", file.getOriginalFilename(), e);
+            return ResponseEntity.internalServerError().body("Error processing file");
+        }
+    }
+
+    // Receipt fields and line items read from the document, for the operator to review before saving
+    @PostMapping("/receipt")
+    public ResponseEntity<?> extractReceipt(@RequestPart("file") MultipartFile file,
+                                            @RequestPart(value = "language", required = false) String language,
+                                            @RequestPart(value = "profile", required = false) String profile,
+                                            HttpServletRequest request) {
+        if (!fileProcessingService.isSupported(file.getContentType())) {
+            return ResponseEntity.badRequest().body("Unsupported file type");
+        }
+        try {
+            OcrProfile ocrProfile = parseProfile(profile);
+            try (OcrAdmissionController.Permit permit = ocrAdmissionController.admit(
+                    clientId(request), fileProcessingService.estimatePages(file))) {
+                String text = fileProcessingService.processFile(file, language, ocrProfile);
+                ReceiptExtractionDTO extraction = receiptExtractionService.extract(text);
+                return ResponseEntity.ok(extraction);
+            }
+        } catch (OcrOverloadedException e) {
+            return tooManyRequests(e);
+        } catch (OcrTimeoutException e) {
+            return ResponseEntity.status(HttpStatus.GATEWAY_TIMEOUT).body(e.getMessage());
+        } catch (OcrEngineUnavailableException e) {
+            return ResponseEntity.status(HttpStatus.SERVICE_UNAVAILABLE).body(e.getMessage());
+        } catch (IllegalArgumentException e) {
+            return ResponseEntity.badRequest().body(e.getMessage());
+        } catch (OcrFailedException e) {
+            log.error("Error processing file {}", file.getOriginalFilename(), e);
+            return ResponseEntity.internalServerError().body(e.getMessage());
+        } catch (IOException e) {
+            log.error("Error processing file {}", file.getOriginalFilename(), e);
+            return ResponseEntity.internalServerError().body("Error processing file");
+        }
+    }
+
+    // Streams one "result" server-sent event per file as each finishes, then a "complete" event
+    @PostMapping("/batch")
+    public ResponseEntity<?> performBatchOcr(@RequestPart("files") List<MultipartFile> files,
+                                             @RequestPart(value = "language", required = false) String language,
+                                             @RequestPart(value = "profile", required = false) String profile,
+                                             HttpServletRequest request) {
+        OcrAdmissionController.Permit permit = null;
+        try {
+            OcrProfile ocrProfile = parseProfile(profile);
+            int pages = files.stream().mapToInt(fileProcessingService::estimatePages).sum();
+            permit = ocrAdmissionController.admit(clientId(request), pages);
+
+            // The batch releases the permit once its last file is processed
+            SseEmitter emitter = ocrBatchService.submit(files, language, ocrProfile, permit);
+            return ResponseEntity.ok()
+                    .contentType(MediaType.TEXT_EVENT_STREAM)
+                    .body(emitter);
+        } catch (OcrOverloadedException e) {
+            return tooManyRequests(e);
+        } catch (IllegalArgumentException e) {
+            if (permit != null) permit.close();
+            return ResponseEntity.badRequest().body(e.getMessage());
+        } catch (IOException e) {
+            if (permit != null) permit.close();
+            log.error("Error submitting OCR batch of {} files", files.size(), e);
+            return ResponseEntity.internalServerError().body("Error processing file");
+        } catch (Exception e) {
+            if (permit != null) permit.close();
+            return ResponseEntity.badRequest().body("Unsupported Language");
+        }
+    }
+
+    @PostMapping("/jobs")
+    public ResponseEntity<?> submitJob(@RequestPart("file") MultipartFile file,
+                                       @RequestPart(value = "language", required = false) String language,
+                                       @RequestPart(value = "profile", required = false) String profile) {
+        try {
+            OcrJob job = ocrJobService.submit(file, language, parseProfile(profile));
+            return ResponseEntity.status(HttpStatus.ACCEPTED)
+                    .body(ocrJobConverter.toDTO(job, 0));
+        } catch (IllegalArgumentException e) {
+            return ResponseEntity.badRequest().body(e.getMessage());
+        } catch (Exception e) {
+            return ResponseEntity.badRequest().body("Unsupported Language");
+        }
+    }
+
+    @GetMapping("/jobs/{id}")
+    public OcrJobDTO getJob(@PathVariable UUID id) {
+        return ocrJobConverter.toDTO(ocrJobService.getJob(id), ocrJobService.countProcessedPages(id));
+    }
+
+    @GetMapping("/jobs/{id}/pages")
+    public List<OcrJobPageDTO> getJobPages(@PathVariable UUID id) {
+        return ocrJobService.getPages(id).stream()
+                .map(ocrJobConverter::toDTO)
+                .toList();
+    }
+
+    @GetMapping("/jobs/{id}/result")
+    public ResponseEntity<String> getJobResult(@PathVariable UUID id) {
+        OcrJob job = ocrJobService.getJob(id);
+
+        if (job.getStatus() == OcrJobStatus.COMPLETED) {
+            return ResponseEntity.ok(job.getResult());
+        }
+        if (job.getStatus() == OcrJobStatus.FAILED) {
+            return ResponseEntity.status(HttpStatus.UNPROCESSABLE_ENTITY).body(job.getErrorMessage());
+        }
+        return ResponseEntity.status(HttpStatus.ACCEPTED).body("OCR job is " + job.getStatus());
+    }
+
     @PostMapping("/cache/clear/{cacheName}")
     public ResponseEntity<?> clearCache(@PathVariable String cacheName) {
         cacheControlService.clearCache(cacheName);
@@ -44,4 +231,26 @@ public class OcrRest {
         return ResponseEntity.ok()
                 .body("All caches cleared successfully");
     }
+
+    private static OcrProfile parseProfile(String profile) {
+        if (profile == null || profile.isBlank()) return null;
+        try {
+            return OcrProfile.valueOf(profile.trim().toUpperCase());
+        } catch (IllegalArgumentException e) {
+            throw new IllegalArgumentException("Unsupported profile");
+        }
+    }
+
+    private static ResponseEntity<String> tooManyRequests(OcrOverloadedException e) {
+        return ResponseEntity.status(HttpStatus.TOO_MANY_REQUESTS)
+                .header(HttpHeaders.RETRY_AFTER, String.valueOf(Math.max(1, e.getRetryAfter().toSeconds())))
+                .body(e.getMessage());
+    }
+
+    // OCR endpoints are public, anonymous callers are told apart by address
+    private static String clientId(HttpServletRequest request) {
+        return request.getUserPrincipal() != null
+                ? request.getUserPrincipal().getName()
+                : request.getRemoteAddr();
+    }
 }
@@ -0,0 +1,92 @@
+package com.cnesten.medarrivalbackend.OCR.Models;
+
+import com.cnesten.medarrivalbackend.OCR.Enums.OcrJobStatus;
+import com.cnesten.medarrivalbackend.OCR.Enums.OcrProfile;
+import jakarta.persistence.*;
+import lombok.Getter;
+import lombok.Setter;
+import org.springframework.data.annotation.CreatedDate;
+import org.springframework.data.annotation.LastModifiedDate;
+import org.springframework.data.jpa.domain.support.AuditingEntityListener;
+
+import java.time.LocalDateTime;
+import java.util.UUID;
+
+@Getter
+@Setter
+@Entity
+@Table(name = "ocr_jobs", indexes = {
+        @Index(name = "idx_ocr_job_status", columnList = "status")
+})
+@EntityListeners(AuditingEntityListener.class)
+public class OcrJob {
+    @Id
+    @GeneratedValue(strategy = GenerationType.UUID)
+    private UUID id;
+
+    @Enumerated(EnumType.STRING)
+    @Column(name = "status", nullable = false)
+    private OcrJobStatus status;
+
+    @Column(name = "file_name")
+    private String fileName;  // Stored upload, relative to app.storage.upload-dir
+
+    @Column(name = "original_name")
+    private String originalName;
+
+    @Column(name = "content_type")
+    private String contentType;
+
+    @Column(name = "language", nullable = false)
+    private String language;
+
+    @Enumerated(EnumType.STRING)
+    @Column(name = "profile")
+    private OcrProfile profile;  // Null runs the configured default profile
+
+    @Column(name = "total_pages")
+    private Integer totalPages;
+
+    @Column(name = "result", columnDefinition = "TEXT")
+    private String result;
+
+    @Column(name = "error_message", length = 1000)
+    private String errorMessage;
+
+    @Column(name = "owner")
+    private String owner;  // Node running the job, null while queued
+
+    @Column(name = "heartbeat_at")
+    private LocalDateTime heartbeatAt;  // Last sign of life of the owner, the job is reclaimed once it is too old
+
+    @Column(name = "started_at")
+    private LocalDateTime startedAt;
+
+    @Column(name = "finished_at")
+    private LocalDateTime finishedAt;
+
+    @CreatedDate
+    @Column(name = "created_at", nullable = false, updatable = false)
+    private LocalDateTime createdAt;
+
+    @LastModifiedDate
+    @Column(name = "updated_at")
+    private LocalDateTime updatedAt;
+
+    @Version
+    private Long version = 0L;
+
+    @PrePersist
+    protected void onCreate() {
+        if (version == null) {
+            version = 0L;
+        }
+    }
+
+    @PreUpdate
+    protected void onUpdate() {
+        if (version == null) {
+            version = 0L;
+        }
+    }
+}
@@ -0,0 +1,44 @@
+package com.cnesten.medarrivalbackend.OCR.Models;
+
+import jakarta.persistence.*;
+import lombok.Getter;
+import lombok.Setter;
+import lombok.ToString;
+import org.springframework.data.annotation.CreatedDate;
+import org.springframework.data.jpa.domain.support.AuditingEntityListener;
+
+import java.time.LocalDateTime;
+
+@Getter
+@Setter
+@ToString(exclude = {"job"})
+@Entity
+@Table(name = "ocr_job_pages", uniqueConstraints = {
+        @UniqueConstraint(columnNames = {"job_id", "page_index"})
+})
+@EntityListeners(AuditingEntityListener.class)
+public class OcrJobPage {
+    @Id
+    @GeneratedValue(strategy = GenerationType.IDENTITY)
+    private Long id;
+
+    @ManyToOne(fetch = FetchType.LAZY)
+    @JoinColumn(name = "job_id", nullable = false)
+    private OcrJob job;
+
+    @Column(name = "page_index", nullable = false)
+    private Integer pageIndex;
+
+    @Column(name = "text", columnDefinition = "TEXT")
+    private String text;
+
+    @Column(name = "confidence")
+    private Float confidence;  // Mean OCR word confidence 0-100, null for text layer pages
+
+    @Column(name = "reprocessed")
+    private Boolean reprocessed;
+
+    @CreatedDate
+    @Column(name = "created_at", nullable = false, updatable = false)
+    private LocalDateTime createdAt;
+}
@@ -0,0 +1,38 @@
+package com.cnesten.medarrivalbackend.OCR.Models;
+
+import jakarta.persistence.*;
+import lombok.Getter;
+import lombok.Setter;
+
+import java.time.LocalDateTime;
+
+@Getter
+@Setter
+@Entity
+@Table(name = "ocr_results", indexes = {
+        @Index(name = "idx_ocr_result_cache", columnList = "cache_name"),
+        @Index(name = "idx_ocr_result_accessed", columnList = "last_accessed_at")
+})
+public class OcrResult {
+    @Id
+    @Column(name = "id", length = 128)
+    private String id;  // "<cacheName>:<sha-256 of the cache key>"
+
+    @Column(name = "cache_name", nullable = false)
+    private String cacheName;
+
+    @Column(name = "payload_type", nullable = false)
+    private String payloadType;
+
+    @Column(name = "payload", columnDefinition = "TEXT", nullable = false)
+    private String payload;  // JSON
+
+    @Column(name = "size_bytes", nullable = false)
+    private Long sizeBytes;
+
+    @Column(name = "created_at", nullable = false, updatable = false)
+    private LocalDateTime createdAt;
+
+    @Column(name = "last_accessed_at", nullable = false)
+    private LocalDateTime lastAccessedAt;
+}
@@ -0,0 +1,24 @@
+package com.cnesten.medarrivalbackend.OCR.Repositories;
+
+import com.cnesten.medarrivalbackend.OCR.Models.OcrJobPage;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
+import org.springframework.stereotype.Repository;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.util.List;
+import java.util.UUID;
+
+@Repository
+public interface OcrJobPageRepository extends JpaRepository<OcrJobPage, Long> {
+    List<OcrJobPage> findByJobIdOrderByPageIndexAsc(UUID jobId);
+
+    long countByJobId(UUID jobId);
+
+    @Transactional
+    @Modifying
+    @Query("delete from OcrJobPage p where p.job.id = :jobId")
+    void deleteByJobId(@Param("jobId") UUID jobId);
+}
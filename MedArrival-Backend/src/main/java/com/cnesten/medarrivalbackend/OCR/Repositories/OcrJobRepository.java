@@ -0,0 +1,45 @@
+package com.cnesten.medarrivalbackend.OCR.Repositories;
+
+import com.cnesten.medarrivalbackend.OCR.Enums.OcrJobStatus;
+import com.cnesten.medarrivalbackend.OCR.Models.OcrJob;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
+import org.springframework.stereotype.Repository;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.time.LocalDateTime;
+import java.util.List;
+import java.util.UUID;
+
+@Repository
+public interface OcrJobRepository extends JpaRepository<OcrJob, UUID> {
+    List<OcrJob> findByStatusOrderByCreatedAtAsc(OcrJobStatus status);
+
+    @Transactional
+    @Modifying
+    @Query("update OcrJob j set j.totalPages = :totalPages where j.id = :id")
+    void updateTotalPages(@Param("id") UUID id, @Param("totalPages") int totalPages);
+
+    // Only succeeds while the node still owns the job
+    @Transactional
+    @Modifying
+    @Query("update OcrJob j set j.heartbeatAt = :now where j.id = :id and j.owner = :owner")
+    int heartbeat(@Param("id") UUID id, @Param("owner") String owner, @Param("now") LocalDateTime now);
+
+    // Jobs left running by a previous process of the same node
+    @Transactional
+    @Modifying
+    @Query("update OcrJob j set j.status = :to, j.owner = null, j.version = j.version + 1 " +
+            "where j.status = :from and j.owner = :owner")
+    int releaseOwned(@Param("from") OcrJobStatus from, @Param("to") OcrJobStatus to, @Param("owner") String owner);
+
+    // Jobs whose owner stopped sending heartbeats, whichever node it was
+    @Transactional
+    @Modifying
+    @Query("update OcrJob j set j.status = :to, j.owner = null, j.version = j.version + 1 " +
+            "where j.status = :from and (j.heartbeatAt is null or j.heartbeatAt < :expiredBefore)")
+    int releaseExpired(@Param("from") OcrJobStatus from, @Param("to") OcrJobStatus to,
+                       @Param("expiredBefore") LocalDateTime expiredBefore);
+}
@@ -0,0 +1,42 @@
+package com.cnesten.medarrivalbackend.OCR.Repositories;
+
+import com.cnesten.medarrivalbackend.OCR.Models.OcrResult;
+import org.springframework.data.domain.Pageable;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
+import org.springframework.stereotype.Repository;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.time.LocalDateTime;
+import java.util.Collection;
+import java.util.List;
+
+@Repository
+public interface OcrResultRepository extends JpaRepository<OcrResult, String> {
+
+    @Query("select coalesce(sum(r.sizeBytes), 0) from OcrResult r")
+    long sumSizeBytes();
+
+    @Query("select r.id from OcrResult r order by r.lastAccessedAt asc")
+    List<String> findLeastRecentlyAccessedIds(Pageable pageable);
+
+    @Query("select coalesce(sum(r.sizeBytes), 0) from OcrResult r where r.id in :ids")
+    long sumSizeBytes(@Param("ids") Collection<String> ids);
+
+    @Transactional
+    @Modifying
+    @Query("update OcrResult r set r.lastAccessedAt = :accessedAt where r.id in :ids")
+    void touch(@Param("ids") Collection<String> ids, @Param("accessedAt") LocalDateTime accessedAt);
+
+    @Transactional
+    @Modifying
+    @Query("delete from OcrResult r where r.id in :ids")
+    void deleteByIds(@Param("ids") Collection<String> ids);
+
+    @Transactional
+    @Modifying
+    @Query("delete from OcrResult r where r.cacheName = :cacheName")
+    void deleteByCacheName(@Param("cacheName") String cacheName);
+}
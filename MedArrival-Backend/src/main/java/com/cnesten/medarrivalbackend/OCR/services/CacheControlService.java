@@ -10,6 +10,7 @@ import java.util.Objects;
 @RequiredArgsConstructor
 public class CacheControlService {
     private final CacheManager cacheManager;
+    private final OcrResultStore ocrResultStore;
 
     public void clearCache(String cacheName) {
         if (cacheManager.getCache(cacheName) != null) {
@@ -20,5 +21,7 @@ public class CacheControlService {
     public void clearAllCaches() {
         cacheManager.getCacheNames()
                 .forEach(cacheName -> Objects.requireNonNull(cacheManager.getCache(cacheName)).clear());
+        // Also drops persisted entries of caches that are no longer configured
+        ocrResultStore.clearAll();
     }
 }
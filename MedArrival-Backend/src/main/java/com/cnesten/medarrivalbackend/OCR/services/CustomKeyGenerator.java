@@ -1,11 +1,14 @@
 package com.cnesten.medarrivalbackend.OCR.services;
 
+import com.cnesten.medarrivalbackend.Utils.ContentHashed;
+import com.cnesten.medarrivalbackend.Utils.HashUtils;
 import jakarta.validation.constraints.NotNull;
 import org.springframework.cache.interceptor.KeyGenerator;
 import org.springframework.stereotype.Component;
-import org.springframework.util.DigestUtils;
 import org.springframework.web.multipart.MultipartFile;
 
+import java.awt.image.BufferedImage;
+import java.io.InputStream;
 import java.lang.reflect.Method;
 
 @Component
@@ -19,12 +22,20 @@ public class CustomKeyGenerator implements KeyGenerator {
             keyBuilder.append(method.getName());
 
             for (Object param : params) {
-                if (param instanceof MultipartFile) {
-                    MultipartFile file = (MultipartFile) param;
-                    String fileHash = DigestUtils.md5DigestAsHex(file.getBytes());
-                    keyBuilder.append("_").append(fileHash);
+                keyBuilder.append("_");
+                if (param instanceof ContentHashed hashed) {
+                    keyBuilder.append(hashed.getContentHash());
+                } else if (param instanceof MultipartFile file) {
+                    keyBuilder.append(HashUtils.sha256Hex(file.getInputStream()));
+                } else if (param instanceof BufferedImage image) {
+                    keyBuilder.append(HashUtils.sha256Hex(image));
+                } else if (param instanceof byte[] bytes) {
+                    keyBuilder.append(HashUtils.sha256Hex(bytes));
+                } else if (param instanceof InputStream) {
+                    // Guarded by isContentAddressable, a plain stream cannot be hashed without consuming it
+                    throw new IllegalArgumentException("Input stream without content hash");
                 } else {
-                    keyBuilder.append("_").append(param.toString());
+                    keyBuilder.append(param);
                 }
             }
 
@@ -33,4 +44,14 @@ public class CustomKeyGenerator implements KeyGenerator {
             throw new RuntimeException("Error generating cache key", e);
         }
     }
+
+    // Used as @Cacheable condition: calls with streams that carry no content hash bypass the cache
+    public boolean isContentAddressable(Object... params) {
+        for (Object param : params) {
+            if (param instanceof InputStream && !(param instanceof ContentHashed)) {
+                return false;
+            }
+        }
+        return true;
+    }
 }
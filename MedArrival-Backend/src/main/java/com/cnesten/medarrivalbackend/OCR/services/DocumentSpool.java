@@ -0,0 +1,115 @@
+package com.cnesten.medarrivalbackend.OCR.services;
+
+import com.cnesten.medarrivalbackend.OCR.Config.OcrProperties;
+import com.cnesten.medarrivalbackend.OCR.Enums.PdfAccessMode;
+import lombok.RequiredArgsConstructor;
+import com.cnesten.medarrivalbackend.Utils.FileSystemMultipartFile;
+import com.cnesten.medarrivalbackend.Utils.HashUtils;
+import com.cnesten.medarrivalbackend.Utils.HashedInputStream;
+import lombok.extern.slf4j.Slf4j;
+import org.apache.pdfbox.Loader;
+import org.apache.pdfbox.io.MemoryUsageSetting;
+import org.apache.pdfbox.io.RandomAccessRead;
+import org.apache.pdfbox.io.RandomAccessReadBufferedFile;
+import org.apache.pdfbox.io.RandomAccessReadMemoryMappedFile;
+import org.apache.pdfbox.io.RandomAccessStreamCache;
+import org.apache.pdfbox.pdmodel.PDDocument;
+import org.springframework.stereotype.Component;
+import org.springframework.web.multipart.MultipartFile;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.security.DigestInputStream;
+import java.security.MessageDigest;
+import java.util.HexFormat;
+
+/**
+ * Spools uploads to a temp file once and opens PDFs from it through a file-backed
+ * {@link RandomAccessRead}, so the heap held per document is bounded by the stream cache
+ * instead of growing with the file size. Uploads are digested by the same copy that spools
+ * them: the content is read once, and cache keys and the pipeline then work from the spool.
+ */
+@Slf4j
+@Component
+@RequiredArgsConstructor
+public class DocumentSpool {
+    private final OcrProperties ocrProperties;
+
+    // Copies the upload through a SHA-256 digest, the returned file already knows its hash
+    public FileSystemMultipartFile spool(MultipartFile upload) throws IOException {
+        MessageDigest digest = HashUtils.newSha256();
+        Path file;
+        try (InputStream inputStream = new DigestInputStream(upload.getInputStream(), digest)) {
+            file = spool(inputStream);
+        }
+        return new FileSystemMultipartFile(file, upload.getName(), upload.getOriginalFilename(),
+                upload.getContentType(), HexFormat.of().formatHex(digest.digest()));
+    }
+
+    // A stream over a file already on disk is read in place, see release. The stream stays open either way,
+    // closing it is up to the caller
+    public Path spool(InputStream inputStream) throws IOException {
+        if (inputStream instanceof HashedInputStream onDisk) {
+            return onDisk.getPath();
+        }
+        Path file = Files.createTempFile(spoolDirectory(), "ocr-", ".tmp");
+        try {
+            Files.copy(inputStream, file, StandardCopyOption.REPLACE_EXISTING);
+            return file;
+        } catch (IOException e) {
+            delete(file);
+            throw e;
+        }
+    }
+
+    // The returned document owns the file handle and releases it on close
+    public PDDocument loadPdf(Path file) throws IOException {
+        RandomAccessRead source = ocrProperties.getPdf().getAccess() == PdfAccessMode.MAPPED
+                ? new RandomAccessReadMemoryMappedFile(file.toFile())
+                : new RandomAccessReadBufferedFile(file.toFile());
+        try {
+            return Loader.loadPDF(source, "", null, null, streamCache());
+        } catch (IOException e) {
+            source.close();
+            throw e;
+        }
+    }
+
+    // Deletes the file spooled from the stream, a file read in place stays with its owner
+    public void release(InputStream inputStream, Path file) {
+        if (!(inputStream instanceof HashedInputStream)) {
+            delete(file);
+        }
+    }
+
+    public void delete(Path file) {
+        try {
+            Files.deleteIfExists(file);
+        } catch (IOException e) {
+            // Still mapped by a page that is finishing, the file goes with the JVM
+            log.debug("Could not delete spooled file {}", file, e);
+            file.toFile().deleteOnExit();
+        }
+    }
+
+    private RandomAccessStreamCache.StreamCacheCreateFunction streamCache() throws IOException {
+        OcrProperties.Pdf config = ocrProperties.getPdf();
+        MemoryUsageSetting setting = switch (config.getStreamCache()) {
+            case MEMORY -> MemoryUsageSetting.setupMainMemoryOnly();
+            case TEMP_FILE -> MemoryUsageSetting.setupTempFileOnly();
+            case MIXED -> MemoryUsageSetting.setupMixed(config.getStreamCacheMemory().toBytes());
+        };
+        return setting.setTempDir(spoolDirectory().toFile()).streamCache;
+    }
+
+    private Path spoolDirectory() throws IOException {
+        String directory = ocrProperties.getPdf().getSpoolDirectory();
+        if (directory == null || directory.isBlank()) {
+            return Path.of(System.getProperty("java.io.tmpdir"));
+        }
+        return Files.createDirectories(Path.of(directory));
+    }
+}
@@ -0,0 +1,31 @@
+package com.cnesten.medarrivalbackend.OCR.services.Engine;
+
+import lombok.RequiredArgsConstructor;
+import org.springframework.boot.actuate.health.Health;
+import org.springframework.boot.actuate.health.HealthIndicator;
+import org.springframework.boot.actuate.health.Status;
+import org.springframework.stereotype.Component;
+
+// Contributes "ocr" to the readiness group only. Warming and degraded are statuses of their own that
+// the root /actuator/health (container health checks) leaves out of its aggregate, see application.properties
+@Component("ocr")
+@RequiredArgsConstructor
+public class OcrHealthIndicator implements HealthIndicator {
+    public static final Status WARMING = new Status("WARMING", "OCR engines are being initialized");
+    public static final Status DEGRADED = new Status("DEGRADED", "Some OCR engine pools failed to start and are retried");
+
+    private final OcrWarmup ocrWarmup;
+
+    @Override
+    public Health health() {
+        Health.Builder builder = switch (ocrWarmup.getState()) {
+            case READY -> Health.up();
+            case DEGRADED -> Health.status(DEGRADED);
+            case PENDING, WARMING -> Health.status(WARMING);
+        };
+        return builder
+                .withDetail("warmup", ocrWarmup.getState())
+                .withDetail("pools", ocrWarmup.getPools())
+                .build();
+    }
+}
@@ -0,0 +1,170 @@
+package com.cnesten.medarrivalbackend.OCR.services.Engine;
+
+import com.cnesten.medarrivalbackend.OCR.Config.OcrProperties;
+import com.cnesten.medarrivalbackend.OCR.Enums.Language;
+import com.cnesten.medarrivalbackend.OCR.Enums.OcrProfile;
+import com.cnesten.medarrivalbackend.OCR.services.LanguageProbeService;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.stereotype.Component;
+
+import java.awt.image.BufferedImage;
+import java.awt.image.WritableRaster;
+import java.time.Duration;
+import java.util.Collections;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+/**
+ * Loads traineddata and initializes the engine pools in the background once the application
+ * is up, by running a small synthetic image through every engine. Until it is done the
+ * "ocr" health indicator keeps the readiness probe out of service, so a freshly deployed
+ * node gets traffic only once the first requests no longer pay for initialization.
+ * Pools that fail are retried every ocr.warmup.retry-interval, the node meanwhile reports
+ * itself degraded and serves the pools that did start.
+ */
+@Slf4j
+@Component
+@RequiredArgsConstructor
+public class OcrWarmup {
+    private final TesseractPool tesseractPool;
+    private final OcrProperties ocrProperties;
+
+    private volatile State state = State.PENDING;
+    // Outcome per language/profile pool, exposed in the health details
+    private final Map<String, String> pools = Collections.synchronizedMap(new LinkedHashMap<>());
+
+    public enum State {
+        PENDING,
+        WARMING,
+        READY,
+        DEGRADED
+    }
+
+    @EventListener(ApplicationReadyEvent.class)
+    public void start() {
+        if (!ocrProperties.getWarmup().isEnabled()) {
+            state = State.READY;
+            return;
+        }
+
+        Thread thread = new Thread(this::warmUp, "OcrWarmup");
+        thread.setDaemon(true);
+        thread.start();
+    }
+
+    public State getState() {
+        return state;
+    }
+
+    public Map<String, String> getPools() {
+        synchronized (pools) {
+            return new LinkedHashMap<>(pools);
+        }
+    }
+
+    private void warmUp() {
+        state = State.WARMING;
+        long start = System.nanoTime();
+        BufferedImage sample = sampleImage();
+        Set<PoolKey> remaining = poolsToWarm();
+        boolean withinBudget = keepWithinBudget(remaining);
+
+        while (true) {
+            remaining.removeIf(pool -> warmUp(pool, sample));
+            if (remaining.isEmpty()) {
+                state = withinBudget ? State.READY : State.DEGRADED;
+                log.info("OCR warm-up completed in {} ms: {}", (System.nanoTime() - start) / 1_000_000, getPools());
+                return;
+            }
+
+            // The failed pools fail their requests too, the others are worth serving meanwhile
+            state = State.DEGRADED;
+            Duration retryInterval = ocrProperties.getWarmup().getRetryInterval();
+            log.warn("OCR warm-up of {} pool(s) failed, retrying in {}: {}", remaining.size(), retryInterval, getPools());
+            try {
+                Thread.sleep(retryInterval.toMillis());
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                return;
+            }
+        }
+    }
+
+    private boolean warmUp(PoolKey pool, BufferedImage sample) {
+        String name = pool.language() + "/" + pool.profile();
+        long poolStart = System.nanoTime();
+        try {
+            int engines = tesseractPool.warmUp(pool.language(), pool.profile(), engine -> engine.recognize(sample));
+            pools.put(name, engines + " engine(s) in " + (System.nanoTime() - poolStart) / 1_000_000 + " ms");
+            return true;
+        } catch (Exception | LinkageError e) {
+            log.error("OCR warm-up of {} failed", name, e);
+            pools.put(name, "failed: " + e.getMessage());
+            return false;
+        }
+    }
+
+    // Warming more engines than the budget allows would evict the ones just created: the pools that
+    // do not fit are left cold and the node stays degraded, ocr.pool.max-engines is too small
+    private boolean keepWithinBudget(Set<PoolKey> keys) {
+        int engines = Math.max(1, ocrProperties.getPool().getInitialSize());
+        int fitting = Math.max(1, ocrProperties.maxEngines() / engines);
+        if (keys.size() <= fitting) {
+            return true;
+        }
+
+        int index = 0;
+        for (Iterator<PoolKey> iterator = keys.iterator(); iterator.hasNext(); index++) {
+            PoolKey pool = iterator.next();
+            if (index >= fitting) {
+                iterator.remove();
+                pools.put(pool.language() + "/" + pool.profile(), "skipped: over ocr.pool.max-engines");
+            }
+        }
+        log.warn("ocr.pool.max-engines={} only fits {} of the warm-up pools", ocrProperties.maxEngines(), fitting);
+        return false;
+    }
+
+    private Set<PoolKey> poolsToWarm() {
+        OcrProperties.Warmup config = ocrProperties.getWarmup();
+        List<OcrProfile> profiles = config.getProfiles().isEmpty()
+                ? List.of(ocrProperties.getDefaultProfile())
+                : config.getProfiles();
+
+        Set<PoolKey> keys = new LinkedHashSet<>();
+        // Requests without a language are probed first, the probe engine is on every cold path
+        keys.add(new PoolKey(LanguageProbeService.PROBE_LANGUAGE, LanguageProbeService.PROBE_PROFILE));
+        for (Language language : config.getLanguages()) {
+            for (OcrProfile profile : profiles) {
+                keys.add(new PoolKey(language, profile));
+            }
+        }
+        return keys;
+    }
+
+    // A few dark bars on white: enough layout for Tesseract to run its line recognizer, no fonts needed
+    private static BufferedImage sampleImage() {
+        int width = 320;
+        int height = 64;
+        BufferedImage image = new BufferedImage(width, height, BufferedImage.TYPE_BYTE_GRAY);
+        WritableRaster raster = image.getRaster();
+
+        for (int y = 0; y < height; y++) {
+            for (int x = 0; x < width; x++) {
+                boolean ink = y >= 20 && y < 44 && x >= 16 && x < width - 16 && (x / 6) % 3 != 0;
+                raster.setSample(x, y, 0, ink ? 0 : 255);
+            }
+        }
+        return image;
+    }
+
+    private record PoolKey(Language language, OcrProfile profile) {
+    }
+}
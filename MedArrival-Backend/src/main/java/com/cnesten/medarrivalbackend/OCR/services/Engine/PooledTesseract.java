@@ -0,0 +1,168 @@
+package com.cnesten.medarrivalbackend.OCR.services.Engine;
+
+import com.cnesten.medarrivalbackend.Exceptions.OcrTimeoutException;
+import com.cnesten.medarrivalbackend.OCR.Config.OcrProperties;
+import com.cnesten.medarrivalbackend.OCR.Enums.Language;
+import com.cnesten.medarrivalbackend.OCR.Enums.OcrProfile;
+import com.sun.jna.Pointer;
+import net.sourceforge.tess4j.ITessAPI;
+import net.sourceforge.tess4j.TessAPI;
+import net.sourceforge.tess4j.Tesseract;
+import net.sourceforge.tess4j.TesseractException;
+
+import java.awt.image.BufferedImage;
+import java.io.IOException;
+import java.nio.IntBuffer;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Tesseract engine bound to a single language and {@link OcrProfile}. Unlike {@link Tesseract}, the native
+ * handle (and the loaded traineddata) is kept between calls instead of being
+ * re-created for every {@code doOCR}. Instances are not thread-safe and must only be
+ * used through {@link TesseractPool}.
+ */
+public class PooledTesseract extends Tesseract {
+    private final Language language;
+    private final OcrProfile profile;
+    private boolean initialized;
+    // Last return to the pool, the engine budget shuts down the one idle for longest first
+    private volatile long releasedAt;
+
+    public PooledTesseract(String dataPath, Language language, OcrProfile profile, OcrProperties.Profile settings) {
+        this.language = language;
+        this.profile = profile;
+        setDatapath(dataPath);
+        setLanguage(language.label);
+        setPageSegMode(settings.getPageSegMode());
+        setOcrEngineMode(settings.getEngineMode());
+    }
+
+    public Language getEngineLanguage() {
+        return language;
+    }
+
+    public OcrProfile getEngineProfile() {
+        return profile;
+    }
+
+    long getReleasedAt() {
+        return releasedAt;
+    }
+
+    void markReleased() {
+        releasedAt = System.nanoTime();
+    }
+
+    public boolean isInitialized() {
+        return initialized;
+    }
+
+    public void initialize() {
+        init();
+    }
+
+    // Same pass as doOCR, the word iterator then reads the cached recognition results
+    public RecognizedText recognize(BufferedImage image) throws TesseractException {
+        return recognize(image, 0);
+    }
+
+    // Tesseract checks the deadline between words and gives up past it, which frees the engine
+    // instead of leaving it stuck on a pathological page. 0 means no deadline.
+    public RecognizedText recognize(BufferedImage image, long timeoutMillis) throws TesseractException {
+        init();
+        setVariables();
+
+        TessAPI api = getAPI();
+        ITessAPI.ETEXT_DESC monitor = null;
+        try {
+            setImage(image, null);
+            if (timeoutMillis > 0) {
+                monitor = api.TessMonitorCreate();
+                api.TessMonitorSetDeadlineMSecs(monitor, (int) Math.min(Integer.MAX_VALUE, timeoutMillis));
+            }
+
+            long start = System.nanoTime();
+            if (api.TessBaseAPIRecognize(getHandle(), monitor) != 0) {
+                if (timeoutMillis > 0 && (System.nanoTime() - start) / 1_000_000 >= timeoutMillis) {
+                    throw new OcrTimeoutException("OCR timed out after " + timeoutMillis + " ms");
+                }
+                throw new TesseractException("Tesseract recognition failed");
+            }
+            return new RecognizedText(getOCRText(null, 1), readWords());
+        } catch (IOException e) {
+            throw new TesseractException(e);
+        } finally {
+            if (monitor != null) {
+                api.TessMonitorDelete(monitor);
+            }
+        }
+    }
+
+    private List<RecognizedText.Word> readWords() {
+        TessAPI api = getAPI();
+        List<RecognizedText.Word> words = new ArrayList<>();
+
+        ITessAPI.TessResultIterator resultIterator = api.TessBaseAPIGetIterator(getHandle());
+        if (resultIterator == null) {
+            return words;
+        }
+
+        try {
+            ITessAPI.TessPageIterator pageIterator = api.TessResultIteratorGetPageIterator(resultIterator);
+            api.TessPageIteratorBegin(pageIterator);
+
+            int level = ITessAPI.TessPageIteratorLevel.RIL_WORD;
+            int block = -1;
+            int line = -1;
+            IntBuffer left = IntBuffer.allocate(1);
+            IntBuffer top = IntBuffer.allocate(1);
+            IntBuffer right = IntBuffer.allocate(1);
+            IntBuffer bottom = IntBuffer.allocate(1);
+
+            do {
+                if (api.TessPageIteratorIsAtBeginningOf(pageIterator, ITessAPI.TessPageIteratorLevel.RIL_BLOCK) == ITessAPI.TRUE) {
+                    block++;
+                }
+                if (api.TessPageIteratorIsAtBeginningOf(pageIterator, ITessAPI.TessPageIteratorLevel.RIL_TEXTLINE) == ITessAPI.TRUE) {
+                    line++;
+                }
+
+                Pointer textPointer = api.TessResultIteratorGetUTF8Text(resultIterator, level);
+                if (textPointer == null) {
+                    continue;
+                }
+                String text = textPointer.getString(0, "UTF-8");
+                api.TessDeleteText(textPointer);
+
+                float confidence = api.TessResultIteratorConfidence(resultIterator, level);
+                api.TessPageIteratorBoundingBox(pageIterator, level, left, top, right, bottom);
+                words.add(new RecognizedText.Word(text, confidence, left.get(0), top.get(0), right.get(0), bottom.get(0),
+                        Math.max(block, 0), Math.max(line, 0)));
+            } while (api.TessPageIteratorNext(pageIterator, level) == ITessAPI.TRUE);
+        } finally {
+            api.TessResultIteratorDelete(resultIterator);
+        }
+        return words;
+    }
+
+    @Override
+    protected void init() {
+        if (!initialized) {
+            super.init();
+            initialized = true;
+        }
+    }
+
+    @Override
+    protected void dispose() {
+        // Handle is reused by the next borrower, see shutdown()
+    }
+
+    public void shutdown() {
+        if (initialized) {
+            super.dispose();
+            initialized = false;
+        }
+    }
+}
@@ -0,0 +1,23 @@
+package com.cnesten.medarrivalbackend.OCR.services.Engine;
+
+import java.util.List;
+
+// Output of a single recognition pass, word boxes are in pixels of the recognized image
+public record RecognizedText(String text, List<Word> words) {
+
+    // block and line are running indexes in reading order, words sharing them belong to the same block or line
+    public record Word(String text, float confidence, int left, int top, int right, int bottom, int block, int line) {
+    }
+
+    // Mean word confidence (0-100) weighted by word length, so stray one-letter noise does not dominate
+    public Float confidence() {
+        long weight = 0;
+        double total = 0;
+        for (Word word : words) {
+            int length = word.text().length();
+            weight += length;
+            total += (double) word.confidence() * length;
+        }
+        return weight == 0 ? null : (float) (total / weight);
+    }
+}
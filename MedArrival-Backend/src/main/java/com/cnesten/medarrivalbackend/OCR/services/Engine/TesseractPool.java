@@ -0,0 +1,282 @@
+package com.cnesten.medarrivalbackend.OCR.services.Engine;
+
+import com.cnesten.medarrivalbackend.Exceptions.OcrEngineUnavailableException;
+import com.cnesten.medarrivalbackend.Exceptions.OcrTimeoutException;
+import com.cnesten.medarrivalbackend.OCR.Config.OcrProperties;
+import com.cnesten.medarrivalbackend.OCR.Enums.Language;
+import com.cnesten.medarrivalbackend.OCR.Enums.OcrProfile;
+import com.cnesten.medarrivalbackend.OCR.services.OcrDeadline;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import jakarta.annotation.PreDestroy;
+import lombok.extern.slf4j.Slf4j;
+import net.sourceforge.tess4j.TesseractException;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Service;
+
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.Queue;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentLinkedDeque;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Bounded pool of {@link PooledTesseract} engines per {@link Language} and
+ * {@link OcrProfile}. Engines are created lazily up to the configured size and handed
+ * out with borrow/release semantics so that a single engine is never shared between two
+ * threads. Pools listed in ocr.warmup are initialized in the background after startup by
+ * {@link OcrWarmup}, the others load their traineddata on first use.
+ * <p>
+ * Every engine holds its traineddata in native memory, so the engines of all pools together
+ * are capped by ocr.pool.max-engines. A pool that needs a new engine past that cap shuts
+ * down the engine idle for longest in any other pool, or waits for one to become idle.
+ */
+@Slf4j
+@Service
+public class TesseractPool {
+    private static final long BUDGET_POLL_MILLIS = 20;
+
+    @Value("${ocr.var.path}")
+    String PATH;
+
+    private final OcrProperties ocrProperties;
+    private final MeterRegistry meterRegistry;
+
+    private final Map<EngineKey, EnginePool> pools = new ConcurrentHashMap<>();
+    // One permit per live engine, across all languages and profiles
+    private final Semaphore engineBudget;
+
+    public TesseractPool(OcrProperties ocrProperties, MeterRegistry meterRegistry) {
+        this.ocrProperties = ocrProperties;
+        this.meterRegistry = meterRegistry;
+        int maxEngines = Math.max(1, ocrProperties.maxEngines());
+        this.engineBudget = new Semaphore(maxEngines);
+
+        Gauge.builder("ocr.pool.engines", engineBudget, budget -> maxEngines - budget.availablePermits())
+                .description("Native OCR engines alive across all pools")
+                .register(meterRegistry);
+    }
+
+    @FunctionalInterface
+    public interface EngineTask<T> {
+        T apply(PooledTesseract engine) throws TesseractException;
+    }
+
+    private record EngineKey(Language language, OcrProfile profile) {
+    }
+
+    // Initializes up to ocr.pool.initial-size engines of one pool and runs the task on each of
+    // them, so traineddata is loaded before real traffic arrives. Returns the engines warmed.
+    public int warmUp(Language language, OcrProfile profile, EngineTask<?> task) throws TesseractException {
+        EnginePool pool = poolFor(language, profile);
+        int engines = Math.min(ocrProperties.getPool().getInitialSize(), pool.maxSize);
+
+        // Held together so that every warm-up lands on a different engine
+        List<PooledTesseract> borrowed = new ArrayList<>(engines);
+        try {
+            for (int i = 0; i < engines; i++) {
+                borrowed.add(borrow(language, profile));
+            }
+            for (PooledTesseract engine : borrowed) {
+                task.apply(engine);
+            }
+            return borrowed.size();
+        } finally {
+            borrowed.forEach(this::release);
+        }
+    }
+
+    public <T> T execute(Language language, EngineTask<T> task) throws TesseractException {
+        return execute(language, ocrProperties.getDefaultProfile(), task);
+    }
+
+    public <T> T execute(Language language, OcrProfile profile, EngineTask<T> task) throws TesseractException {
+        PooledTesseract engine = borrow(language, profile);
+        try {
+            return task.apply(engine);
+        } finally {
+            release(engine);
+        }
+    }
+
+    public PooledTesseract borrow(Language language, OcrProfile profile) {
+        EnginePool pool = poolFor(language, profile);
+        // Never waits past the deadline of the work at hand, the engine would have no time left to run
+        Duration borrowTimeout = ocrProperties.getPool().getBorrowTimeout();
+        long timeoutNanos = TimeUnit.MILLISECONDS.toNanos(OcrDeadline.remainingMillis(borrowTimeout));
+        boolean deadlineBound = timeoutNanos < borrowTimeout.toNanos();
+        long start = System.nanoTime();
+
+        try {
+            try {
+                if (!pool.permits.tryAcquire(timeoutNanos, TimeUnit.NANOSECONDS)) {
+                    throw noEngine("No OCR engine available for " + language + "/" + profile, deadlineBound);
+                }
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                throw new OcrEngineUnavailableException("Interrupted while waiting for an OCR engine");
+            }
+
+            try {
+                return idleOrNew(pool, start + timeoutNanos, deadlineBound);
+            } catch (RuntimeException e) {
+                pool.permits.release();
+                throw e;
+            }
+        } finally {
+            pool.waitTimer.record(System.nanoTime() - start, TimeUnit.NANOSECONDS);
+        }
+    }
+
+    public void release(PooledTesseract engine) {
+        EnginePool pool = poolFor(engine.getEngineLanguage(), engine.getEngineProfile());
+        engine.markReleased();
+        pool.idle.offerFirst(engine);
+        pool.permits.release();
+    }
+
+    // The caller holds a permit of the pool. New engines need room in the budget: a free slot,
+    // or the slot of an idle engine shut down in another pool.
+    private PooledTesseract idleOrNew(EnginePool pool, long deadlineNanos, boolean deadlineBound) {
+        while (true) {
+            PooledTesseract engine = pool.idle.poll();
+            if (engine != null) {
+                return engine;
+            }
+
+            if (engineBudget.tryAcquire() || evictLongestIdle()) {
+                try {
+                    return pool.create();
+                } catch (RuntimeException e) {
+                    engineBudget.release();
+                    throw e;
+                }
+            }
+
+            // Every engine of the budget is busy, the first one released is taken over
+            if (System.nanoTime() - deadlineNanos >= 0) {
+                throw noEngine("OCR engine budget exhausted, no engine available for "
+                        + pool.key.language() + "/" + pool.key.profile(), deadlineBound);
+            }
+            try {
+                Thread.sleep(BUDGET_POLL_MILLIS);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                throw new OcrEngineUnavailableException("Interrupted while waiting for an OCR engine");
+            }
+        }
+    }
+
+    // A wait cut short by the caller's deadline is a timeout, not a shortage of engines
+    private static RuntimeException noEngine(String message, boolean deadlineBound) {
+        return deadlineBound
+                ? new OcrTimeoutException("OCR deadline exceeded waiting for an engine")
+                : new OcrEngineUnavailableException(message);
+    }
+
+    // Shuts down the engine idle for longest across all pools, its budget slot passes to the caller
+    private boolean evictLongestIdle() {
+        while (true) {
+            EnginePool oldestPool = null;
+            PooledTesseract oldest = null;
+            for (EnginePool candidatePool : pools.values()) {
+                PooledTesseract candidate = candidatePool.idle.peekLast();
+                if (candidate != null && (oldest == null || candidate.getReleasedAt() - oldest.getReleasedAt() < 0)) {
+                    oldestPool = candidatePool;
+                    oldest = candidate;
+                }
+            }
+            if (oldest == null) {
+                return false;
+            }
+
+            // Lost to a borrower of that pool in the meantime, look again
+            if (oldestPool.idle.removeLastOccurrence(oldest)) {
+                oldestPool.all.remove(oldest);
+                oldest.shutdown();
+                log.debug("Shut down idle OCR engine {}/{} to stay within the engine budget",
+                        oldestPool.key.language(), oldestPool.key.profile());
+                return true;
+            }
+        }
+    }
+
+    @PreDestroy
+    public void shutdown() {
+        pools.values().forEach(pool -> pool.all.forEach(PooledTesseract::shutdown));
+    }
+
+    private EnginePool poolFor(Language language, OcrProfile profile) {
+        return pools.computeIfAbsent(new EngineKey(language, profile), key -> {
+            EnginePool pool = new EnginePool(key, ocrProperties.getPool().sizeFor(language));
+
+            Gauge.builder("ocr.pool.idle", pool.idle, Queue::size)
+                    .tag("language", language.name())
+                    .tag("profile", profile.name())
+                    .register(meterRegistry);
+            Gauge.builder("ocr.pool.active", pool, EnginePool::active)
+                    .tag("language", language.name())
+                    .tag("profile", profile.name())
+                    .register(meterRegistry);
+            return pool;
+        });
+    }
+
+    private String dataPathFor(OcrProfile profile, OcrProperties.Profile settings) {
+        String variant = settings.getTessdata();
+        if (variant == null || variant.isBlank()) {
+            return PATH;
+        }
+
+        Path variantPath = Path.of(PATH, variant);
+        if (Files.isDirectory(variantPath)) {
+            return variantPath.toString();
+        }
+        log.warn("Tessdata variant '{}' of profile {} not found under {}, using the base models", variant, profile, PATH);
+        return PATH;
+    }
+
+    private class EnginePool {
+        private final EngineKey key;
+        private final int maxSize;
+        private final Semaphore permits;
+        // Most recently used engines are reused first so cold ones stay cold
+        private final ConcurrentLinkedDeque<PooledTesseract> idle = new ConcurrentLinkedDeque<>();
+        private final Queue<PooledTesseract> all = new ConcurrentLinkedQueue<>();
+        private final Timer waitTimer;
+        private final OcrProperties.Profile settings;
+        private final String dataPath;
+
+        EnginePool(EngineKey key, int maxSize) {
+            this.key = key;
+            this.maxSize = maxSize;
+            this.permits = new Semaphore(maxSize, true);
+            this.settings = ocrProperties.profile(key.profile());
+            this.dataPath = dataPathFor(key.profile(), settings);
+            this.waitTimer = Timer.builder("ocr.pool.wait")
+                    .tag("language", key.language().name())
+                    .tag("profile", key.profile().name())
+                    .publishPercentiles(0.5, 0.95, 0.99)
+                    .register(meterRegistry);
+        }
+
+        PooledTesseract create() {
+            PooledTesseract engine = new PooledTesseract(dataPath, key.language(), key.profile(), settings);
+            all.add(engine);
+            log.debug("Created OCR engine #{} for {}/{}", all.size(), key.language(), key.profile());
+            return engine;
+        }
+
+        int active() {
+            return maxSize - permits.availablePermits();
+        }
+    }
+}
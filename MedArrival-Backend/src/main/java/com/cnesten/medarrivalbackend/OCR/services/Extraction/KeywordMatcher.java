@@ -0,0 +1,211 @@
+package com.cnesten.medarrivalbackend.OCR.services.Extraction;
+
+import java.text.Normalizer;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Map;
+import java.util.Queue;
+
+/**
+ * Aho-Corasick automaton over folded text: case, accents and runs of whitespace are ignored,
+ * so "Réf  Bon Commande" and "REF BON COMMANDE" hit the same keyword. All keywords are found
+ * in one left-to-right scan whatever their number. Matches are whole words, leftmost-longest
+ * and non-overlapping ("date peremption" wins over "date").
+ */
+public final class KeywordMatcher<T> {
+    private static final int OTHER = 0;
+    private static final int SPACE = 37;
+    private static final int ALPHABET = 43;
+    private static final int MAX_KEYWORD = 64;
+
+    private static final byte[] SYMBOLS = buildSymbols();
+
+    private final int[][] transitions;
+    // Keywords ending in each state, including the ones reached through failure links
+    private final int[][] outputs;
+    private final int[] lengths;
+    private final List<T> values;
+
+    public KeywordMatcher(Map<String, T> keywords) {
+        List<int[]> gotos = new ArrayList<>();
+        List<List<Integer>> stateOutputs = new ArrayList<>();
+        gotos.add(newState());
+        stateOutputs.add(new ArrayList<>());
+
+        this.values = new ArrayList<>(keywords.size());
+        this.lengths = new int[keywords.size()];
+
+        for (Map.Entry<String, T> keyword : keywords.entrySet()) {
+            int[] symbols = fold(keyword.getKey());
+            if (symbols.length == 0 || symbols.length > MAX_KEYWORD) {
+                throw new IllegalArgumentException("Invalid keyword: " + keyword.getKey());
+            }
+
+            int state = 0;
+            for (int symbol : symbols) {
+                if (gotos.get(state)[symbol] < 0) {
+                    gotos.get(state)[symbol] = gotos.size();
+                    gotos.add(newState());
+                    stateOutputs.add(new ArrayList<>());
+                }
+                state = gotos.get(state)[symbol];
+            }
+
+            lengths[values.size()] = symbols.length;
+            stateOutputs.get(state).add(values.size());
+            values.add(keyword.getValue());
+        }
+
+        // Breadth-first, so the failure target of a state is complete before the state itself
+        int[] failure = new int[gotos.size()];
+        Queue<Integer> queue = new ArrayDeque<>();
+        for (int symbol = 0; symbol < ALPHABET; symbol++) {
+            int next = gotos.get(0)[symbol];
+            if (next < 0) {
+                gotos.get(0)[symbol] = 0;
+            } else {
+                queue.add(next);
+            }
+        }
+        while (!queue.isEmpty()) {
+            int state = queue.poll();
+            stateOutputs.get(state).addAll(stateOutputs.get(failure[state]));
+
+            for (int symbol = 0; symbol < ALPHABET; symbol++) {
+                int next = gotos.get(state)[symbol];
+                if (next < 0) {
+                    gotos.get(state)[symbol] = gotos.get(failure[state])[symbol];
+                } else {
+                    failure[next] = gotos.get(failure[state])[symbol];
+                    queue.add(next);
+                }
+            }
+        }
+
+        this.transitions = gotos.toArray(new int[0][]);
+        this.outputs = stateOutputs.stream()
+                .map(ids -> ids.stream().mapToInt(Integer::intValue).toArray())
+                .toArray(int[][]::new);
+    }
+
+    public List<Match<T>> find(CharSequence text) {
+        List<Match<T>> matches = new ArrayList<>();
+        // Text index of the last symbols fed to the automaton, to map a match back to its start
+        int[] positions = new int[MAX_KEYWORD];
+        int fed = 0;
+        int state = 0;
+        boolean afterSpace = true;
+
+        int length = text.length();
+        for (int i = 0; i < length; i++) {
+            int symbol = SYMBOLS[text.charAt(i)];
+            if (symbol == SPACE) {
+                if (afterSpace) continue;
+                afterSpace = true;
+            } else {
+                afterSpace = false;
+            }
+
+            positions[fed++ % MAX_KEYWORD] = i;
+            state = transitions[state][symbol];
+
+            for (int keyword : outputs[state]) {
+                if (lengths[keyword] > fed) continue;
+                int start = positions[(fed - lengths[keyword]) % MAX_KEYWORD];
+                if (isWordStart(text, start) && isWordEnd(text, i + 1)) {
+                    matches.add(new Match<>(values.get(keyword), start, i + 1));
+                }
+            }
+        }
+
+        return leftmostLongest(matches);
+    }
+
+    private static <T> List<Match<T>> leftmostLongest(List<Match<T>> matches) {
+        matches.sort(Comparator.<Match<T>>comparingInt(Match::start)
+                .thenComparing(Comparator.<Match<T>>comparingInt(Match::end).reversed()));
+
+        List<Match<T>> kept = new ArrayList<>(matches.size());
+        int end = 0;
+        for (Match<T> match : matches) {
+            if (match.start() >= end) {
+                kept.add(match);
+                end = match.end();
+            }
+        }
+        return kept;
+    }
+
+    private static boolean isWordStart(CharSequence text, int start) {
+        return start == 0 || !Character.isLetterOrDigit(text.charAt(start - 1));
+    }
+
+    // Digits may follow a label directly ("N°1234", "Lot123")
+    private static boolean isWordEnd(CharSequence text, int end) {
+        return end == text.length() || !Character.isLetter(text.charAt(end));
+    }
+
+    private static int[] newState() {
+        int[] state = new int[ALPHABET];
+        Arrays.fill(state, -1);
+        return state;
+    }
+
+    private static int[] fold(String keyword) {
+        int[] symbols = new int[keyword.length()];
+        int count = 0;
+        boolean afterSpace = true;
+        for (int i = 0; i < keyword.length(); i++) {
+            int symbol = SYMBOLS[keyword.charAt(i)];
+            if (symbol == SPACE) {
+                if (afterSpace) continue;
+                afterSpace = true;
+            } else {
+                afterSpace = false;
+            }
+            symbols[count++] = symbol;
+        }
+        if (count > 0 && symbols[count - 1] == SPACE) count--;
+        return Arrays.copyOf(symbols, count);
+    }
+
+    // a-z 1..26, 0-9 27..36, then space (any whitespace or apostrophe), '.', '°', ':', '/', '-'
+    private static byte[] buildSymbols() {
+        byte[] symbols = new byte[Character.MAX_VALUE + 1];
+
+        for (int c = 0; c <= Character.MAX_VALUE; c++) {
+            char folded = Character.toLowerCase((char) c);
+            if (folded > 0x7F && folded < 0x250) {
+                // Accented Latin letters fold to their base letter
+                folded = Normalizer.normalize(String.valueOf(folded), Normalizer.Form.NFD).charAt(0);
+            }
+
+            if (folded >= 'a' && folded <= 'z') {
+                symbols[c] = (byte) (1 + folded - 'a');
+            } else if (folded >= '0' && folded <= '9') {
+                symbols[c] = (byte) (27 + folded - '0');
+            } else if (Character.isWhitespace(c) || Character.isSpaceChar(c) || c == '\'' || c == '’') {
+                symbols[c] = SPACE;
+            } else if (c == '.') {
+                symbols[c] = 38;
+            } else if (c == '°' || c == 'º') {
+                symbols[c] = 39;
+            } else if (c == ':') {
+                symbols[c] = 40;
+            } else if (c == '/') {
+                symbols[c] = 41;
+            } else if (c == '-') {
+                symbols[c] = 42;
+            } else {
+                symbols[c] = OTHER;
+            }
+        }
+        return symbols;
+    }
+
+    public record Match<T>(T value, int start, int end) {
+    }
+}
@@ -0,0 +1,453 @@
+package com.cnesten.medarrivalbackend.OCR.services.Extraction;
+
+import com.cnesten.medarrivalbackend.DTO.ReceiptDTO;
+import com.cnesten.medarrivalbackend.DTO.ReceiptItemDTO;
+import com.cnesten.medarrivalbackend.OCR.DTO.ReceiptExtractionDTO;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import org.springframework.stereotype.Service;
+
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.time.YearMonth;
+import java.util.ArrayList;
+import java.util.EnumMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+/**
+ * Turns the text of a receipt into a pre-filled {@link ReceiptDTO}. Labels of all fields are
+ * located by one Aho-Corasick scan, then the text is walked once line by line: each label
+ * reads its value with the field's precompiled pattern right after it (or on the line below,
+ * for table headers), and lines starting with an article code become items. Every field gets
+ * a confidence from where its value was found, whether repeated labels agree and whether
+ * the totals add up.
+ */
+@Service
+public class ReceiptExtractionService {
+    private static final KeywordMatcher<ReceiptField> LABELS = buildLabels();
+
+    private static final String AMOUNT = "\\d{1,3}(?:[ .\\u00A0\\u202F]\\d{3})+(?:,\\d{1,3})?|\\d+(?:[.,]\\d{1,3})?";
+    // Item columns are split on plain spaces, so thousands there are only grouped with dots or non-breaking spaces
+    private static final String ITEM_AMOUNT = "\\d{1,3}(?:[.\\u00A0\\u202F]\\d{3})+(?:,\\d{1,3})?|\\d+(?:[.,]\\d{1,3})?";
+    private static final String DATE = "(\\d{1,2})[/.\\-](\\d{1,2})[/.\\-](\\d{4}|\\d{2})\\b|(\\d{1,2})[/.\\-](\\d{4})\\b";
+    private static final String REFERENCE = "[A-Z0-9][A-Z0-9/\\-]{1,30}";
+
+    private static final Map<ReceiptField, Pattern> VALUE_PATTERNS = buildValuePatterns();
+    private static final Pattern DATE_PATTERN = Pattern.compile(DATE);
+    // Blank, ':' or "N°" between a label and its value
+    private static final Pattern SEPARATOR = Pattern.compile("[\\s:.°º#=\\-]*(?:n[°º]|no\\b)?[\\s:.°º#=\\-]*", Pattern.CASE_INSENSITIVE);
+    // Article code, description, quantity, optional unit, unit price, optional line total
+    private static final Pattern ITEM_ROW = Pattern.compile(
+            "^\\s*([A-Z]{2,5}-?\\d{3,8})\\s+(.+?)\\s+(\\d+(?:[.,]\\d+)?)\\s+(?:([A-Za-z]{1,5})\\s+)?("
+                    + ITEM_AMOUNT + ")(?:\\s+(" + ITEM_AMOUNT + "))?\\s*$");
+
+    private static final float SAME_LINE = 0.9f;
+    private static final float SAME_LINE_LATER = 0.75f;
+    private static final float NEXT_LINE = 0.6f;
+
+    private final Timer extractionTimer;
+
+    public ReceiptExtractionService(MeterRegistry meterRegistry) {
+        // Its count rate is the extraction throughput in documents per second
+        this.extractionTimer = Timer.builder("ocr.receipt.extraction")
+                .publishPercentiles(0.5, 0.95, 0.99)
+                .register(meterRegistry);
+    }
+
+    public ReceiptExtractionDTO extract(String text) {
+        return extractionTimer.record(() -> extractReceipt(text == null ? "" : text));
+    }
+
+    private ReceiptExtractionDTO extractReceipt(String text) {
+        Map<ReceiptField, Candidate> fields = new EnumMap<>(ReceiptField.class);
+        List<Item> items = new ArrayList<>();
+        List<KeywordMatcher.Match<ReceiptField>> labels = LABELS.find(text);
+
+        Item currentItem = null;
+        int label = 0;
+        int lineStart = 0;
+        while (lineStart <= text.length()) {
+            int lineEnd = lineEnd(text, lineStart);
+
+            Item row = readItemRow(text, lineStart, lineEnd);
+            if (row != null) {
+                items.add(row);
+                currentItem = row;
+            }
+
+            for (; label < labels.size() && labels.get(label).start() < lineEnd; label++) {
+                KeywordMatcher.Match<ReceiptField> match = labels.get(label);
+                // A value never runs into the next label of the same line
+                int limit = label + 1 < labels.size() ? labels.get(label + 1).start() : text.length();
+
+                if (match.value().itemField) {
+                    if (currentItem != null) {
+                        readItemField(text, match, limit, currentItem);
+                    }
+                } else if (row == null) {
+                    readField(text, lineStart, match, limit, fields);
+                }
+            }
+
+            lineStart = lineEnd + 1;
+        }
+
+        List<Item> receiptItems = resolveDuplicates(fields, items);
+        checkTotals(fields, receiptItems);
+        return toDTO(fields, receiptItems);
+    }
+
+    // Identical rows are a page scanned twice or the same article delivered twice, only Total HT
+    // tells them apart: they are merged when it matches the distinct rows and not all of them,
+    // otherwise kept with a lower confidence for the operator to check. Compared once every row
+    // is complete, lot and dates are read after the row itself.
+    private static List<Item> resolveDuplicates(Map<ReceiptField, Candidate> fields, List<Item> items) {
+        Map<ReceiptItemDTO, Item> distinct = new LinkedHashMap<>();
+        for (Item item : items) {
+            distinct.putIfAbsent(item.dto, item);
+        }
+        if (distinct.size() == items.size()) {
+            return items;
+        }
+
+        Candidate totalHT = fields.get(ReceiptField.TOTAL_HT);
+        if (totalHT != null
+                && !amountsMatch(sum(items), (Float) totalHT.value)
+                && amountsMatch(sum(distinct.values()), (Float) totalHT.value)) {
+            return new ArrayList<>(distinct.values());
+        }
+
+        for (Item item : items) {
+            if (distinct.get(item.dto) != item) {
+                item.confidence *= 0.7f;
+            }
+        }
+        return items;
+    }
+
+    private static float sum(Iterable<Item> items) {
+        float sum = 0;
+        for (Item item : items) {
+            sum += item.dto.getSubtotal();
+        }
+        return sum;
+    }
+
+    private void readField(String text, int lineStart, KeywordMatcher.Match<ReceiptField> match, int limit,
+                           Map<ReceiptField, Candidate> fields) {
+        ReceiptField field = match.value();
+        int valueLineEnd = lineEnd(text, match.end());
+
+        if (field == ReceiptField.BANK_DETAILS) {
+            // Bank name, agency and account are printed together, the whole line is kept
+            String details = text.substring(lineStart, valueLineEnd).strip();
+            offer(fields, field, details.length() > 255 ? details.substring(0, 255) : details, SAME_LINE_LATER);
+            return;
+        }
+
+        Pattern pattern = VALUE_PATTERNS.get(field);
+        Matcher matcher = pattern.matcher(text);
+        int valueStart = skipSeparator(text, match.end(), valueLineEnd);
+
+        matcher.region(valueStart, Math.min(valueLineEnd, limit));
+        if (matcher.find()) {
+            Object value = parse(field, matcher);
+            if (value != null) {
+                offer(fields, field, value, matcher.start() == valueStart ? SAME_LINE : SAME_LINE_LATER);
+                return;
+            }
+        }
+
+        // Table header: the value sits under the label, unless the next line starts with another label
+        int nextLineStart = valueLineEnd + 1;
+        if (nextLineStart < limit) {
+            int nextLineEnd = Math.min(lineEnd(text, nextLineStart), limit);
+            matcher.region(skipSeparator(text, nextLineStart, nextLineEnd), nextLineEnd);
+            if (matcher.lookingAt()) {
+                Object value = parse(field, matcher);
+                if (value != null) {
+                    offer(fields, field, value, NEXT_LINE);
+                }
+            }
+        }
+    }
+
+    private void readItemField(String text, KeywordMatcher.Match<ReceiptField> match, int limit, Item item) {
+        ReceiptField field = match.value();
+        int valueLineEnd = lineEnd(text, match.end());
+        int valueStart = skipSeparator(text, match.end(), valueLineEnd);
+
+        Matcher matcher = VALUE_PATTERNS.get(field).matcher(text);
+        matcher.region(valueStart, Math.min(valueLineEnd, limit));
+        if (!matcher.lookingAt()) {
+            return;
+        }
+
+        switch (field) {
+            case LOT_NUMBER -> item.dto.setLotNumber(matcher.group());
+            case CALIBRATION_DATE -> item.dto.setCalibrationDate(parseDate(matcher, false));
+            case EXPIRATION_DATE -> item.dto.setExpirationDate(parseDate(matcher, true));
+            default -> {
+            }
+        }
+    }
+
+    private Item readItemRow(String text, int lineStart, int lineEnd) {
+        Matcher matcher = ITEM_ROW.matcher(text);
+        matcher.region(lineStart, lineEnd);
+        if (!matcher.matches()) {
+            return null;
+        }
+
+        Float quantity = parseAmount(matcher.group(3));
+        Float unitPrice = parseAmount(matcher.group(5));
+        Float lineTotal = matcher.group(6) != null ? parseAmount(matcher.group(6)) : null;
+        if (quantity == null || unitPrice == null) {
+            return null;
+        }
+
+        ReceiptItemDTO dto = new ReceiptItemDTO();
+        dto.setArticleCode(matcher.group(1));
+        dto.setDescription(matcher.group(2).strip());
+        dto.setQuantity(Math.round(quantity));
+        dto.setUnit(matcher.group(4));
+        dto.setUnitPrice(unitPrice);
+
+        // A printed total that matches quantity x price confirms the whole row was read right
+        float computed = dto.getQuantity() * unitPrice;
+        float confidence;
+        if (lineTotal == null) {
+            confidence = 0.7f;
+            dto.setSubtotal(computed);
+        } else if (amountsMatch(computed, lineTotal)) {
+            confidence = 0.95f;
+            dto.setSubtotal(lineTotal);
+        } else {
+            confidence = 0.5f;
+            dto.setSubtotal(lineTotal);
+        }
+        return new Item(dto, confidence);
+    }
+
+    // Total HT x (1 + TVA) = Total TTC, and the items add up to Total HT
+    private static void checkTotals(Map<ReceiptField, Candidate> fields, List<Item> items) {
+        Candidate totalHT = fields.get(ReceiptField.TOTAL_HT);
+        Candidate totalTTC = fields.get(ReceiptField.TOTAL_TTC);
+        Candidate tva = fields.get(ReceiptField.TVA_PERCENTAGE);
+
+        if (totalHT != null && totalTTC != null) {
+            boolean consistent = tva != null
+                    ? amountsMatch((Float) totalHT.value * (1 + (Float) tva.value / 100f), (Float) totalTTC.value)
+                    : amountsMatch((Float) totalHT.value, (Float) totalTTC.value);
+            // Without a rate a difference proves nothing, only a match is evidence
+            if (!consistent && tva == null) {
+                return;
+            }
+            for (ReceiptField field : new ReceiptField[]{ReceiptField.TOTAL_HT, ReceiptField.TOTAL_TTC, ReceiptField.TVA_PERCENTAGE}) {
+                Candidate candidate = fields.get(field);
+                if (candidate != null) {
+                    fields.put(field, candidate.withConfidence(consistent
+                            ? Math.max(candidate.confidence, 0.98f)
+                            : candidate.confidence * 0.7f));
+                }
+            }
+        }
+
+        if (totalHT != null && !items.isEmpty()) {
+            if (amountsMatch(sum(items), (Float) totalHT.value)) {
+                for (Item item : items) {
+                    item.confidence = Math.max(item.confidence, 0.9f);
+                }
+            }
+        }
+    }
+
+    // Repeated labels that agree raise the confidence, disagreeing ones lower it
+    private static void offer(Map<ReceiptField, Candidate> fields, ReceiptField field, Object value, float confidence) {
+        Candidate current = fields.get(field);
+        if (current == null) {
+            fields.put(field, new Candidate(value, confidence));
+        } else if (Objects.equals(current.value, value)) {
+            fields.put(field, current.withConfidence(Math.min(1f, Math.max(current.confidence, confidence) + 0.05f)));
+        } else if (field == ReceiptField.DELIVERY_NOTE_NUMBERS) {
+            // A receipt can cover several delivery notes, each listed on its own line
+            fields.put(field, new Candidate(current.value + ", " + value, Math.min(current.confidence, confidence)));
+        } else if (confidence > current.confidence) {
+            fields.put(field, new Candidate(value, confidence * 0.8f));
+        } else {
+            fields.put(field, current.withConfidence(current.confidence * 0.8f));
+        }
+    }
+
+    private static Object parse(ReceiptField field, Matcher matcher) {
+        return switch (field) {
+            case RECEIPT_DATE, CALIBRATION_DATE -> parseDate(matcher, false);
+            case EXPIRATION_DATE -> parseDate(matcher, true);
+            case TOTAL_HT, TOTAL_TTC -> parseAmount(matcher.group());
+            case TVA_PERCENTAGE -> parseAmount(matcher.group(1));
+            case ICE_NUMBER, BANK_ACCOUNT -> matcher.group().replaceAll("\\s", "");
+            case DELIVERY_RECEIVED -> matcher.group().equalsIgnoreCase("oui") || matcher.group().equalsIgnoreCase("yes");
+            default -> matcher.group().strip();
+        };
+    }
+
+    // dd/mm/yyyy or dd/mm/yy, or mm/yyyy which means the end of the month for an expiration date
+    private static LocalDateTime parseDate(Matcher matcher, boolean endOfMonth) {
+        Matcher date = DATE_PATTERN.matcher(matcher.group());
+        if (!date.find()) {
+            return null;
+        }
+        try {
+            if (date.group(1) != null) {
+                int year = Integer.parseInt(date.group(3));
+                if (year < 100) year += 2000;
+                return LocalDate.of(year, Integer.parseInt(date.group(2)), Integer.parseInt(date.group(1))).atStartOfDay();
+            }
+            YearMonth month = YearMonth.of(Integer.parseInt(date.group(5)), Integer.parseInt(date.group(4)));
+            return (endOfMonth ? month.atEndOfMonth() : month.atDay(1)).atStartOfDay();
+        } catch (RuntimeException e) {
+            // OCR misread such as 31/02
+            return null;
+        }
+    }
+
+    // French and English formats: "1 234,56", "1.234,56", "1,234.56", "1234.56"
+    static Float parseAmount(String amount) {
+        if (amount == null) {
+            return null;
+        }
+        String digits = amount.replaceAll("[\\s\\u00A0\\u202F]", "");
+        int comma = digits.lastIndexOf(',');
+        int dot = digits.lastIndexOf('.');
+
+        if (comma >= 0 && dot >= 0) {
+            // The last separator is the decimal one
+            digits = comma > dot
+                    ? digits.replace(".", "").replace(',', '.')
+                    : digits.replace(",", "");
+        } else if (comma >= 0) {
+            digits = digits.replace(',', '.');
+        } else if (dot >= 0 && digits.matches("\\d{1,3}(\\.\\d{3})+")) {
+            digits = digits.replace(".", "");
+        }
+
+        try {
+            return Float.parseFloat(digits);
+        } catch (NumberFormatException e) {
+            return null;
+        }
+    }
+
+    private static boolean amountsMatch(float expected, float actual) {
+        return Math.abs(expected - actual) <= Math.max(0.01f, Math.abs(actual) * 0.005f);
+    }
+
+    private static int skipSeparator(String text, int from, int to) {
+        Matcher separator = SEPARATOR.matcher(text);
+        separator.region(from, to);
+        return separator.lookingAt() ? separator.end() : from;
+    }
+
+    private static int lineEnd(String text, int from) {
+        int end = text.indexOf('\n', from);
+        return end < 0 ? text.length() : end;
+    }
+
+    private static ReceiptExtractionDTO toDTO(Map<ReceiptField, Candidate> fields, List<Item> items) {
+        ReceiptDTO receipt = new ReceiptDTO();
+        Map<String, Float> fieldConfidence = new LinkedHashMap<>();
+
+        for (Map.Entry<ReceiptField, Candidate> entry : fields.entrySet()) {
+            Object value = entry.getValue().value;
+            switch (entry.getKey()) {
+                case RECEIPT_NUMBER -> receipt.setReceiptNumber((String) value);
+                case RECEIPT_DATE -> receipt.setReceiptDate((LocalDateTime) value);
+                case ICE_NUMBER -> receipt.setIceNumber((String) value);
+                case REFERENCE_NUMBER -> receipt.setReferenceNumber((String) value);
+                case DELIVERY_NOTE_NUMBERS -> receipt.setDeliveryNoteNumbers((String) value);
+                case TVA_PERCENTAGE -> receipt.setTvaPercentage((Float) value);
+                case TOTAL_HT -> receipt.setTotalHT((Float) value);
+                case TOTAL_TTC -> receipt.setTotalTTC((Float) value);
+                case PAYMENT_TERMS -> receipt.setPaymentTerms((String) value);
+                case BANK_ACCOUNT -> receipt.setBankAccount((String) value);
+                case BANK_DETAILS -> receipt.setBankDetails((String) value);
+                case ISSUING_DEPARTMENT -> receipt.setIssuingDepartment((String) value);
+                case DELIVERY_REF -> receipt.setDeliveryRef((String) value);
+                case DELIVERY_RECEIVED -> receipt.setDeliveryReceived((Boolean) value);
+                default -> {
+                    continue;
+                }
+            }
+            fieldConfidence.put(entry.getKey().property, entry.getValue().confidence);
+        }
+
+        ReceiptExtractionDTO extraction = new ReceiptExtractionDTO();
+        List<ReceiptItemDTO> receiptItems = new ArrayList<>();
+        for (Item item : items) {
+            receiptItems.add(item.dto);
+            extraction.getItemConfidence().add(item.confidence);
+        }
+        receipt.setReceiptItems(receiptItems);
+        receipt.setTotalAmount(items.isEmpty() ? null
+                : (float) items.stream().mapToDouble(item -> item.dto.getSubtotal()).sum());
+
+        extraction.setReceipt(receipt);
+        extraction.setFieldConfidence(fieldConfidence);
+        return extraction;
+    }
+
+    private static KeywordMatcher<ReceiptField> buildLabels() {
+        Map<String, ReceiptField> keywords = new LinkedHashMap<>();
+        for (ReceiptField field : ReceiptField.values()) {
+            for (String label : field.labels) {
+                keywords.put(label, field);
+            }
+        }
+        return new KeywordMatcher<>(keywords);
+    }
+
+    private static Map<ReceiptField, Pattern> buildValuePatterns() {
+        Map<ReceiptField, Pattern> patterns = new EnumMap<>(ReceiptField.class);
+        patterns.put(ReceiptField.RECEIPT_NUMBER, Pattern.compile(REFERENCE, Pattern.CASE_INSENSITIVE));
+        patterns.put(ReceiptField.RECEIPT_DATE, Pattern.compile(DATE));
+        // Moroccan ICE: 15 digits, sometimes printed in groups
+        patterns.put(ReceiptField.ICE_NUMBER, Pattern.compile("\\d(?: ?\\d){14}(?!\\d)"));
+        patterns.put(ReceiptField.REFERENCE_NUMBER, Pattern.compile(REFERENCE, Pattern.CASE_INSENSITIVE));
+        patterns.put(ReceiptField.DELIVERY_NOTE_NUMBERS, Pattern.compile(
+                REFERENCE + "(?:\\s*[,;&]\\s*" + REFERENCE + ")*", Pattern.CASE_INSENSITIVE));
+        patterns.put(ReceiptField.TVA_PERCENTAGE, Pattern.compile("(\\d{1,2}(?:[.,]\\d{1,2})?)\\s*%"));
+        patterns.put(ReceiptField.TOTAL_HT, Pattern.compile(AMOUNT));
+        patterns.put(ReceiptField.TOTAL_TTC, Pattern.compile(AMOUNT));
+        patterns.put(ReceiptField.PAYMENT_TERMS, Pattern.compile("\\S.{0,254}"));
+        // Moroccan RIB: 24 digits, usually in groups
+        patterns.put(ReceiptField.BANK_ACCOUNT, Pattern.compile("\\d(?: ?\\d){23}(?!\\d)"));
+        patterns.put(ReceiptField.ISSUING_DEPARTMENT, Pattern.compile("[A-Z0-9][A-Z0-9/\\-]*(?: [A-Z0-9/\\-]+){0,3}", Pattern.CASE_INSENSITIVE));
+        patterns.put(ReceiptField.DELIVERY_REF, Pattern.compile(REFERENCE, Pattern.CASE_INSENSITIVE));
+        patterns.put(ReceiptField.DELIVERY_RECEIVED, Pattern.compile("\\b(?:oui|non|yes|no)\\b", Pattern.CASE_INSENSITIVE));
+        patterns.put(ReceiptField.LOT_NUMBER, Pattern.compile("[A-Z0-9][A-Z0-9/\\-]{1,30}", Pattern.CASE_INSENSITIVE));
+        patterns.put(ReceiptField.CALIBRATION_DATE, Pattern.compile(DATE));
+        patterns.put(ReceiptField.EXPIRATION_DATE, Pattern.compile(DATE));
+        return patterns;
+    }
+
+    private record Candidate(Object value, float confidence) {
+        Candidate withConfidence(float newConfidence) {
+            return new Candidate(value, newConfidence);
+        }
+    }
+
+    private static class Item {
+        private final ReceiptItemDTO dto;
+        private float confidence;
+
+        Item(ReceiptItemDTO dto, float confidence) {
+            this.dto = dto;
+            this.confidence = confidence;
+        }
+    }
+}
@@ -0,0 +1,38 @@
+package com.cnesten.medarrivalbackend.OCR.services.Extraction;
+
+import java.util.List;
+
+// Fields read from receipt text with the labels announcing them, as printed on our suppliers' PDFs.
+// Labels are matched case and accent insensitive, see KeywordMatcher.
+public enum ReceiptField {
+    RECEIPT_NUMBER("receiptNumber", false, "facture n°", "facture no", "facture n", "n° facture", "numero facture", "numero de facture"),
+    RECEIPT_DATE("receiptDate", false, "date", "date facture", "date de facture"),
+    ICE_NUMBER("iceNumber", false, "ice", "i.c.e", "i.c.e.", "identifiant commun de l entreprise"),
+    REFERENCE_NUMBER("referenceNumber", false, "ref bon commande", "ref. bon commande", "ref bon de commande", "ref. bon de commande", "bon de commande", "bon commande"),
+    DELIVERY_NOTE_NUMBERS("deliveryNoteNumbers", false, "bl n°", "bl no", "bl:", "bl :", "n° bl", "bon de livraison", "bons de livraison"),
+    TVA_PERCENTAGE("tvaPercentage", false, "tva", "t.v.a", "taux tva", "taux de tva"),
+    TOTAL_HT("totalHT", false, "total ht", "total h.t", "total h.t.", "montant ht", "montant h.t", "montant h.t."),
+    TOTAL_TTC("totalTTC", false, "total ttc", "total t.t.c", "total t.t.c.", "montant ttc", "net a payer"),
+    PAYMENT_TERMS("paymentTerms", false, "condition de paiement", "conditions de paiement", "mode de paiement", "modalite de paiement"),
+    BANK_ACCOUNT("bankAccount", false, "rib", "r.i.b", "compte bancaire", "n° de compte", "numero de compte"),
+    BANK_DETAILS("bankDetails", false, "banque", "bank", "coordonnees bancaires"),
+    ISSUING_DEPARTMENT("issuingDepartment", false, "organe emetteur"),
+    DELIVERY_REF("deliveryRef", false, "base sur livraison", "basee sur livraison"),
+    DELIVERY_RECEIVED("deliveryReceived", false, "accuse de reception"),
+
+    // Per line item, attached to the item row above them
+    LOT_NUMBER("lotNumber", true, "lot", "lot n°", "n° lot", "numero de lot"),
+    CALIBRATION_DATE("calibrationDate", true, "calibration", "date calibration", "date de calibration"),
+    EXPIRATION_DATE("expirationDate", true, "exp", "peremption", "expiration", "date peremption", "date de peremption", "date d expiration");
+
+    // ReceiptDTO / ReceiptItemDTO property the field fills
+    public final String property;
+    public final boolean itemField;
+    public final List<String> labels;
+
+    ReceiptField(String property, boolean itemField, String... labels) {
+        this.property = property;
+        this.itemField = itemField;
+        this.labels = List.of(labels);
+    }
+}
@@ -0,0 +1,134 @@
+package com.cnesten.medarrivalbackend.OCR.services;
+
+import com.cnesten.medarrivalbackend.OCR.Config.OcrProperties;
+import org.springframework.beans.factory.annotation.Qualifier;
+import org.springframework.stereotype.Service;
+
+import java.util.ArrayDeque;
+import java.util.Deque;
+import java.util.concurrent.Executor;
+import java.util.concurrent.RejectedExecutionException;
+
+/**
+ * Round-robin front of the OCR page executor. Every document gets its own lane and the
+ * scheduler hands one page per lane in turn to the executor, keeping no more pages in
+ * flight than there are page threads. A 50-page document therefore advances one page at
+ * a time alongside the 1-page documents submitted after it instead of queueing ahead of
+ * all of them. The executor therefore never holds more pages than it has threads, and a
+ * page it rejects waits in its lane for the next one to complete.
+ */
+@Service
+public class FairPageScheduler {
+    private final Executor ocrPageExecutor;
+    private final int maxInFlight;
+
+    // Lanes with pending pages, in turn order. Guarded by this
+    private final Deque<Lane> readyLanes = new ArrayDeque<>();
+    private int inFlight;
+
+    public FairPageScheduler(OcrProperties ocrProperties,
+                             @Qualifier("ocrPageExecutor") Executor ocrPageExecutor) {
+        this.ocrPageExecutor = ocrPageExecutor;
+        this.maxInFlight = Math.max(1, ocrProperties.getExecutor().getThreads());
+    }
+
+    // Pages of one document must be submitted through the same lane to share its turn
+    public Executor newLane() {
+        return new Lane();
+    }
+
+    // Pages are taken out under the lock and handed to the executor after releasing it,
+    // so a slow or rejecting executor never holds up other lanes
+    private void enqueue(Lane lane, Runnable page) {
+        synchronized (this) {
+            lane.pages.addLast(page);
+            if (!lane.scheduled) {
+                lane.scheduled = true;
+                readyLanes.addLast(lane);
+            }
+        }
+        dispatch();
+    }
+
+    private void completed() {
+        synchronized (this) {
+            inFlight--;
+        }
+        dispatch();
+    }
+
+    private void dispatch() {
+        PageTask task;
+        while ((task = next()) != null) {
+            try {
+                ocrPageExecutor.execute(task);
+            } catch (RejectedExecutionException e) {
+                // Retried when a page in flight completes, given up when none is left to do so
+                if (!requeue(task)) {
+                    throw e;
+                }
+                return;
+            }
+        }
+    }
+
+    private synchronized PageTask next() {
+        if (inFlight >= maxInFlight || readyLanes.isEmpty()) {
+            return null;
+        }
+        Lane lane = readyLanes.pollFirst();
+        Runnable page = lane.pages.pollFirst();
+
+        // Back of the line until its next page, other documents go first
+        if (lane.pages.isEmpty()) {
+            lane.scheduled = false;
+        } else {
+            readyLanes.addLast(lane);
+        }
+
+        inFlight++;
+        return new PageTask(lane, page);
+    }
+
+    private synchronized boolean requeue(PageTask task) {
+        inFlight--;
+        if (inFlight == 0) {
+            return false;
+        }
+        task.lane.pages.addFirst(task.page);
+        if (!task.lane.scheduled) {
+            task.lane.scheduled = true;
+            readyLanes.addFirst(task.lane);
+        }
+        return true;
+    }
+
+    private class PageTask implements Runnable {
+        private final Lane lane;
+        private final Runnable page;
+
+        private PageTask(Lane lane, Runnable page) {
+            this.lane = lane;
+            this.page = page;
+        }
+
+        @Override
+        public void run() {
+            try {
+                page.run();
+            } finally {
+                completed();
+            }
+        }
+    }
+
+    private class Lane implements Executor {
+        private final Deque<Runnable> pages = new ArrayDeque<>();
+        private boolean scheduled;
+
+        @Override
+        public void execute(Runnable page) {
+            enqueue(this, page);
+        }
+    }
+}
@@ -1,7 +1,11 @@
 package com.cnesten.medarrivalbackend.OCR.services;
 
+import com.cnesten.medarrivalbackend.OCR.DTO.OcrLayoutDTO;
+import com.cnesten.medarrivalbackend.OCR.Enums.OcrProfile;
+import com.cnesten.medarrivalbackend.OCR.services.FileProcessor.FileProcessor;
 import com.cnesten.medarrivalbackend.OCR.services.FileProcessor.ImageProcessor;
 import com.cnesten.medarrivalbackend.OCR.services.FileProcessor.PdfProcessor;
+import com.cnesten.medarrivalbackend.Utils.FileSystemMultipartFile;
 import lombok.RequiredArgsConstructor;
 import org.springframework.stereotype.Service;
 import org.springframework.web.multipart.MultipartFile;
@@ -13,21 +17,81 @@ import java.io.IOException;
 public class FileProcessingService {
     private final ImageProcessor imageProcessor;
     private final PdfProcessor pdfProcessor;
+    private final DocumentSpool documentSpool;
 
-    public String processFile(MultipartFile file, String language) throws IOException {
-        String contentType = file.getContentType();
-        String fileName = file.getOriginalFilename();
+    // Failures throw, the returned text is always a result worth keeping
+    public String processFile(MultipartFile file, String language, OcrProfile profile) throws IOException {
+        FileProcessor processor = getProcessor(file.getContentType());
+        if (processor == null) {
+            throw new IllegalArgumentException("Unsupported file type");
+        }
+        // Spooled and hashed in one read here, the digest is reused for every cache key derived from this upload
+        FileSystemMultipartFile upload = spool(file);
+        try {
+            return processor.processFile(upload, language, profile);
+        } finally {
+            release(file, upload);
+        }
+    }
+
+    public String processFile(MultipartFile file, String language, OcrProfile profile, OcrPageListener listener) throws IOException {
+        FileProcessor processor = getProcessor(file.getContentType());
+        if (processor == null) {
+            throw new IllegalArgumentException("Unsupported file type");
+        }
+        FileSystemMultipartFile upload = spool(file);
+        try {
+            return processor.processFile(upload, language, profile, listener);
+        } finally {
+            release(file, upload);
+        }
+    }
+
+    // Null when the file type is not supported
+    public OcrLayoutDTO processLayout(MultipartFile file, String language, OcrProfile profile) throws IOException {
+        FileProcessor processor = getProcessor(file.getContentType());
+        if (processor == null) {
+            return null;
+        }
+        FileSystemMultipartFile upload = spool(file);
+        try {
+            return processor.processLayout(upload, language, profile);
+        } finally {
+            release(file, upload);
+        }
+    }
+
+    public int estimatePages(MultipartFile file) {
+        FileProcessor processor = getProcessor(file.getContentType());
+        return processor == null ? 1 : processor.estimatePages(file);
+    }
 
-            if (contentType.startsWith("image")) {
-                return imageProcessor.processFile(file, language);
-            } else if (contentType.startsWith("application/pdf")) {
-                return pdfProcessor.processFile(file, language);
-            } else if (contentType.equals("application/octet-stream")) {
-                return pdfProcessor.processFile(file, language);
-            }
-        
-        return "Unsupported file type";
+    public boolean isSupported(String contentType) {
+        return getProcessor(contentType) != null;
     }
 
-    
+    // Files already on disk (stored jobs, batch parts) are read in place
+    private FileSystemMultipartFile spool(MultipartFile file) throws IOException {
+        return file instanceof FileSystemMultipartFile onDisk ? onDisk : documentSpool.spool(file);
+    }
+
+    private void release(MultipartFile file, FileSystemMultipartFile upload) {
+        if (upload != file) {
+            documentSpool.delete(upload.getPath());
+        }
+    }
+
+    private FileProcessor getProcessor(String contentType) {
+        if (contentType == null) return null;
+
+        if (contentType.startsWith("image")) {
+            return imageProcessor;
+        } else if (contentType.startsWith("application/pdf")) {
+            return pdfProcessor;
+        } else if (contentType.equals("application/octet-stream")) {
+            return pdfProcessor;
+        }
+
+        return null;
+    }
 }
@@ -1,9 +1,27 @@
 package com.cnesten.medarrivalbackend.OCR.services.FileProcessor;
 
+import com.cnesten.medarrivalbackend.OCR.DTO.OcrLayoutDTO;
+import com.cnesten.medarrivalbackend.OCR.DTO.OcrTextDTO;
+import com.cnesten.medarrivalbackend.OCR.Enums.OcrProfile;
+import com.cnesten.medarrivalbackend.OCR.services.OcrPageListener;
 import org.springframework.web.multipart.MultipartFile;
 
 import java.io.IOException;
 
 public interface FileProcessor {
-    String processFile(MultipartFile file, String language) throws IOException;
+    String processFile(MultipartFile file, String language, OcrProfile profile) throws IOException;
+
+    OcrLayoutDTO processLayout(MultipartFile file, String language, OcrProfile profile) throws IOException;
+
+    default String processFile(MultipartFile file, String language, OcrProfile profile, OcrPageListener listener) throws IOException {
+        listener.onDocumentStarted(1);
+        String text = processFile(file, language, profile);
+        listener.onPageCompleted(0, 1, OcrTextDTO.of(text));
+        return text;
+    }
+
+    // Weight of the file for admission control, taken before any of its content is read
+    default int estimatePages(MultipartFile file) {
+        return 1;
+    }
 }
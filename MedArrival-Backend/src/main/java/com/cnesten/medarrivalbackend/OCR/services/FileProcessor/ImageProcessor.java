@@ -1,5 +1,10 @@
 package com.cnesten.medarrivalbackend.OCR.services.FileProcessor;
 
+import com.cnesten.medarrivalbackend.OCR.DTO.OcrLayoutDTO;
+import com.cnesten.medarrivalbackend.OCR.DTO.OcrTextDTO;
+import com.cnesten.medarrivalbackend.OCR.Enums.OcrProfile;
+import com.cnesten.medarrivalbackend.OCR.services.LayoutService;
+import com.cnesten.medarrivalbackend.OCR.services.OcrPageListener;
 import com.cnesten.medarrivalbackend.OCR.services.OcrService;
 import lombok.RequiredArgsConstructor;
 import org.springframework.stereotype.Service;
@@ -12,10 +17,24 @@ import java.io.IOException;
 public class ImageProcessor implements FileProcessor {
 
     private final OcrService ocrService;
+    private final LayoutService layoutService;
 
     @Override
-    public String processFile(MultipartFile file, String language) throws IOException {
-        return ocrService.performOCR(file, language);
+    public String processFile(MultipartFile file, String language, OcrProfile profile) throws IOException {
+        return ocrService.recognize(file, language, profile).getText();
+    }
+
+    @Override
+    public String processFile(MultipartFile file, String language, OcrProfile profile, OcrPageListener listener) throws IOException {
+        listener.onDocumentStarted(1);
+        OcrTextDTO result = ocrService.recognize(file, language, profile);
+        listener.onPageCompleted(0, 1, result);
+        return result.getText();
+    }
+
+    @Override
+    public OcrLayoutDTO processLayout(MultipartFile file, String language, OcrProfile profile) throws IOException {
+        return layoutService.analyzeImage(file, language, profile);
     }
     
 }
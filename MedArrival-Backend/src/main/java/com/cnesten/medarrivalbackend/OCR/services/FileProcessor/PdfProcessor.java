@@ -1,21 +1,54 @@
 package com.cnesten.medarrivalbackend.OCR.services.FileProcessor;
 
+import com.cnesten.medarrivalbackend.OCR.Config.OcrProperties;
+import com.cnesten.medarrivalbackend.OCR.DTO.OcrLayoutDTO;
+import com.cnesten.medarrivalbackend.OCR.Enums.OcrProfile;
 import com.cnesten.medarrivalbackend.OCR.Enums.PdfExtractionStrategy;
+import com.cnesten.medarrivalbackend.OCR.services.LayoutService;
+import com.cnesten.medarrivalbackend.OCR.services.OcrPageListener;
 import com.cnesten.medarrivalbackend.OCR.services.PdfService;
 import lombok.RequiredArgsConstructor;
 import org.springframework.stereotype.Service;
 import org.springframework.web.multipart.MultipartFile;
 
 import java.io.IOException;
+import java.io.InputStream;
 
 @Service
 @RequiredArgsConstructor
 public class PdfProcessor implements FileProcessor{
 
     private final PdfService pdfService;
+    private final LayoutService layoutService;
+    private final OcrProperties ocrProperties;
 
     @Override
-    public String processFile(MultipartFile file, String language) throws IOException {
-        return pdfService.extractTextFromPdf(file.getInputStream(), PdfExtractionStrategy.ADAPTIVE, language);
+    public String processFile(MultipartFile file, String language, OcrProfile profile) throws IOException {
+        // The services read the spooled file by its path, the stream is only closed here
+        try (InputStream inputStream = file.getInputStream()) {
+            return pdfService.extractTextFromPdf(inputStream, PdfExtractionStrategy.ADAPTIVE, language, profile);
+        }
+    }
+
+    @Override
+    public String processFile(MultipartFile file, String language, OcrProfile profile, OcrPageListener listener) throws IOException {
+        try (InputStream inputStream = file.getInputStream()) {
+            return pdfService.extractTextFromPdf(inputStream, PdfExtractionStrategy.ADAPTIVE, language, profile, listener);
+        }
+    }
+
+    @Override
+    public OcrLayoutDTO processLayout(MultipartFile file, String language, OcrProfile profile) throws IOException {
+        try (InputStream inputStream = file.getInputStream()) {
+            return layoutService.analyzePdf(inputStream, language, profile);
+        }
+    }
+
+    // From the upload size: parsing the document here would spool it before admission and again after.
+    // Pages that need OCR are the large ones, so bytes follow the cost more closely than a page count.
+    @Override
+    public int estimatePages(MultipartFile file) {
+        long bytesPerPage = Math.max(1, ocrProperties.getAdmission().getBytesPerPage().toBytes());
+        return (int) Math.max(1, Math.min(Integer.MAX_VALUE, (file.getSize() + bytesPerPage - 1) / bytesPerPage));
     }
 }
@@ -2,33 +2,96 @@ package com.cnesten.medarrivalbackend.OCR.services;
 
 import org.apache.pdfbox.contentstream.PDFStreamEngine;
 import org.apache.pdfbox.contentstream.operator.Operator;
+import org.apache.pdfbox.contentstream.operator.OperatorName;
+import org.apache.pdfbox.contentstream.operator.state.Concatenate;
+import org.apache.pdfbox.contentstream.operator.state.Restore;
+import org.apache.pdfbox.contentstream.operator.state.Save;
+import org.apache.pdfbox.contentstream.operator.state.SetGraphicsStateParameters;
+import org.apache.pdfbox.contentstream.operator.state.SetMatrix;
 import org.apache.pdfbox.cos.COSBase;
-import org.springframework.stereotype.Service;
+import org.apache.pdfbox.cos.COSName;
+import org.apache.pdfbox.pdmodel.PDPage;
+import org.apache.pdfbox.pdmodel.graphics.PDXObject;
+import org.apache.pdfbox.pdmodel.graphics.form.PDFormXObject;
+import org.apache.pdfbox.pdmodel.graphics.image.PDImageXObject;
+import org.apache.pdfbox.util.Matrix;
 
 import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Collections;
 import java.util.List;
 
-@Service
+// Holds per-page state, create one instance per page task instead of sharing it
 public class ImageDetectionEngineService extends PDFStreamEngine {
     private boolean imageFound;
+    private final List<DetectedImage> images = new ArrayList<>();
+    private float pageArea;
+
+    public record DetectedImage(PDImageXObject image,
+                                int pixelWidth,
+                                int pixelHeight,
+                                float displayWidth,
+                                float displayHeight,
+                                float pageCoverage) {
+    }
 
     public ImageDetectionEngineService() {
         imageFound = false;
+        // Graphics state operators so that the CTM at each "Do" gives the displayed size
+        addOperator(new Concatenate(this));
+        addOperator(new SetGraphicsStateParameters(this));
+        addOperator(new Save(this));
+        addOperator(new Restore(this));
+        addOperator(new SetMatrix(this));
     }
 
     public boolean isImageFound() {
         return imageFound;
     }
 
+    public List<DetectedImage> getImages() {
+        return Collections.unmodifiableList(images);
+    }
+
     public void resetImageFoundFlag() {
         imageFound = false;
+        images.clear();
     }
+
+    @Override
+    public void processPage(PDPage page) throws IOException {
+        pageArea = page.getMediaBox().getWidth() * page.getMediaBox().getHeight();
+        super.processPage(page);
+    }
+
     @Override
     protected void processOperator(Operator operator, List<COSBase> operands) throws  IOException {
         String operation = operator.getName();
-        if (operation.equals("Do")) {
+        if (operation.equals(OperatorName.DRAW_OBJECT)) {
+            imageFound = true;
+            if (!operands.isEmpty() && operands.get(0) instanceof COSName objectName) {
+                PDXObject xobject = getResources().getXObject(objectName);
+                if (xobject instanceof PDImageXObject image) {
+                    addImage(image);
+                } else if (xobject instanceof PDFormXObject form) {
+                    showForm(form);
+                }
+            }
+            return;
+        }
+        if (operation.equals(OperatorName.BEGIN_INLINE_IMAGE)) {
+            // Inline images are small by nature (icons, rules), only flag them
             imageFound = true;
         }
         super.processOperator(operator, operands);
     }
+
+    private void addImage(PDImageXObject image) {
+        Matrix ctm = getGraphicsState().getCurrentTransformationMatrix();
+        float displayWidth = Math.abs(ctm.getScalingFactorX());
+        float displayHeight = Math.abs(ctm.getScalingFactorY());
+        float coverage = pageArea > 0 ? Math.min(1f, displayWidth * displayHeight / pageArea) : 0f;
+
+        images.add(new DetectedImage(image, image.getWidth(), image.getHeight(), displayWidth, displayHeight, coverage));
+    }
 }
@@ -1,42 +1,53 @@
 package com.cnesten.medarrivalbackend.OCR.services;
 
+import com.cnesten.medarrivalbackend.OCR.Config.OcrProperties;
 import com.cnesten.medarrivalbackend.OCR.Enums.Language;
+import lombok.RequiredArgsConstructor;
 import org.springframework.stereotype.Service;
 
-import java.util.Arrays;
-import java.util.List;
-
 @Service
+@RequiredArgsConstructor
 public class LanguageDetectionService {
+    public static final String AUTO = "auto";
+
+    private final OcrProperties ocrProperties;
+
     public String getLanguageFromRequest(String language) throws Exception {
+        if (isAuto(language)) return AUTO;
+        return resolveLanguage(language).label;
+    }
+
+    public boolean isAuto(String language) {
+        return language == null || AUTO.equalsIgnoreCase(language.trim());
+    }
+
+    public Language resolveLanguage(String language) throws Exception {
 
         boolean containsFrench = language.contains("fra") || language.contains("french") || language.contains("fr");
         boolean containsArabic = language.contains("ara") || language.contains("arabe") || language.contains("ar");
+        boolean containsEnglish = language.contains("eng") || language.contains("english") || language.contains("en");
 
-        if (containsArabic && containsFrench) return Language.ARABE_LATIN.label;
-        if (containsFrench) return Language.FRENCH.label;
-        if (containsArabic) return Language.ARABE.label;
+        if (containsArabic && containsFrench) return Language.ARABE_LATIN;
+        if (containsFrench) return Language.FRENCH;
+        if (containsArabic) return Language.ARABE;
+        if (containsEnglish) return Language.ENGLISH;
 
         throw new Exception("Unsupported Language");
     }
 
-    public boolean isProbablyArabic(String text) {
-        return text.matches(".*\\p{InArabic}.*");
-    }
+    // Narrowest language pack covering the scripts found in a probe, the dual model is only
+    // loaded when both scripts carry a meaningful share of the letters
+    public Language languageFor(TextQualityAnalyzer.TextQuality quality) {
+        OcrProperties.Probe config = ocrProperties.getProbe();
 
-    public boolean isProbablyFrench(String text) {
-        return text.matches(".*\\p{InFrench}.*");
-    }
+        int letters = quality.arabic() + quality.latin();
+        if (letters == 0) return config.getFallback();
 
-    public boolean isProbablyMalExtracted (String text){
-        List<String> charsIndicatingMalExtract = Arrays.asList("","Ø","Ý","¾","¬", "¿", "¤", "¦", "¨","¼","½","¸","ß","Þ","Ö","","¹","¿","Áّ","","","","","\b","","","","","");
-        
-        for (String c : charsIndicatingMalExtract){
-            if (text.contains(c)) return true;
-        }
+        boolean arabic = (double) quality.arabic() / letters >= config.getMinScriptShare();
+        boolean latin = (double) quality.latin() / letters >= config.getMinScriptShare();
 
-        return false;
+        if (arabic && latin) return Language.ARABE_LATIN;
+        if (arabic) return Language.ARABE;
+        return Language.FRENCH;
     }
-
-
 }
@@ -0,0 +1,130 @@
+package com.cnesten.medarrivalbackend.OCR.services;
+
+import com.cnesten.medarrivalbackend.Exceptions.OcrTimeoutException;
+import com.cnesten.medarrivalbackend.OCR.Config.OcrProperties;
+import com.cnesten.medarrivalbackend.OCR.Enums.Language;
+import com.cnesten.medarrivalbackend.OCR.Enums.OcrProfile;
+import com.cnesten.medarrivalbackend.OCR.services.Engine.TesseractPool;
+import com.cnesten.medarrivalbackend.OCR.services.Preprocessing.BinarizationEngine;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import net.sourceforge.tess4j.TesseractException;
+import org.apache.pdfbox.pdmodel.PDDocument;
+import org.apache.pdfbox.rendering.ImageType;
+import org.apache.pdfbox.rendering.PDFRenderer;
+import org.apache.pdfbox.text.PDFTextStripper;
+import org.springframework.cache.annotation.Cacheable;
+import org.springframework.stereotype.Service;
+
+import java.awt.Color;
+import java.awt.Graphics2D;
+import java.awt.RenderingHints;
+import java.awt.image.BufferedImage;
+import java.io.IOException;
+import java.nio.file.Path;
+
+/**
+ * Picks the language pack for documents submitted with the "auto" language. A few pages
+ * are sampled cheaply (text layer, or a low resolution OCR pass) and their script mix
+ * decides the narrowest {@link Language} for the full pass. Results are cached per
+ * document hash.
+ */
+@Slf4j
+@Service
+@RequiredArgsConstructor
+public class LanguageProbeService {
+    // The probe needs both scripts but only to classify them, the fast models are enough
+    public static final Language PROBE_LANGUAGE = Language.ARABE_LATIN;
+    public static final OcrProfile PROBE_PROFILE = OcrProfile.FAST;
+
+    private final TesseractPool tesseractPool;
+    private final BinarizationEngine binarizationEngine;
+    private final TextQualityAnalyzer textQualityAnalyzer;
+    private final LanguageDetectionService languageDetectionService;
+    private final OcrProperties ocrProperties;
+    private final DocumentSpool documentSpool;
+
+    @Cacheable(cacheNames = "languageProbeCache",
+            key = "#documentHash",
+            condition = "#documentHash != null",
+            unless = "#result == null")
+    public Language probePdf(Path pdfFile, String documentHash) {
+        OcrProperties.Probe config = ocrProperties.getProbe();
+        TextQualityAnalyzer.TextQuality sample = TextQualityAnalyzer.TextQuality.EMPTY;
+
+        try (PDDocument document = documentSpool.loadPdf(pdfFile)) {
+            PDFTextStripper pdfStripper = new PDFTextStripper();
+            PDFRenderer pdfRenderer = new PDFRenderer(document);
+
+            int pageCount = Math.min(document.getNumberOfPages(), config.getPages());
+            for (int pageIndex = 0; pageIndex < pageCount; pageIndex++) {
+                pdfStripper.setStartPage(pageIndex + 1);
+                pdfStripper.setEndPage(pageIndex + 1);
+
+                TextQualityAnalyzer.TextQuality quality = textQualityAnalyzer.analyze(pdfStripper.getText(document));
+                if (quality.isEmpty() || quality.isProbablyMalExtracted()) {
+                    BufferedImage image = pdfRenderer.renderImageWithDPI(pageIndex, config.getDpi(), ImageType.GRAY);
+                    quality = textQualityAnalyzer.analyze(recognize(image));
+                }
+                sample = sample.plus(quality);
+            }
+        } catch (IOException e) {
+            log.warn("Language probe failed, using {}", config.getFallback(), e);
+            return config.getFallback();
+        }
+
+        Language language = languageDetectionService.languageFor(sample);
+        log.debug("Language probe picked {} from {}", language, sample);
+        return language;
+    }
+
+    @Cacheable(cacheNames = "languageProbeCache",
+            key = "#contentHash",
+            condition = "#contentHash != null",
+            unless = "#result == null")
+    public Language probeImage(BufferedImage image, String contentHash) {
+        BufferedImage probeImage = downscale(image, ocrProperties.getProbe().getMaxDimension());
+        return languageDetectionService.languageFor(textQualityAnalyzer.analyze(recognize(probeImage)));
+    }
+
+    // The probe itself needs both scripts, anything it reads is only used for classification
+    private String recognize(BufferedImage image) {
+        try {
+            BufferedImage binarizedImage = binarizationEngine.binarize(image, ocrProperties.binarizationFor(PROBE_PROFILE));
+            return tesseractPool.execute(PROBE_LANGUAGE, PROBE_PROFILE, engine -> {
+                // Bounded like any page, a probe past its deadline propagates instead of being cached
+                long timeoutMillis = OcrDeadline.remainingMillis(ocrProperties.getDeadlines().getPage());
+                if (timeoutMillis <= 0) {
+                    throw new OcrTimeoutException("OCR deadline exceeded");
+                }
+                return engine.recognize(binarizedImage, timeoutMillis).text();
+            });
+        } catch (TesseractException e) {
+            // A busy pool propagates instead of reading as an empty sample, the fallback would be cached
+            log.warn("Language probe OCR failed", e);
+            return "";
+        }
+    }
+
+    private static BufferedImage downscale(BufferedImage image, int maxDimension) {
+        int longestSide = Math.max(image.getWidth(), image.getHeight());
+        if (longestSide <= maxDimension) {
+            return image;
+        }
+
+        double scale = (double) maxDimension / longestSide;
+        int width = Math.max(1, (int) Math.round(image.getWidth() * scale));
+        int height = Math.max(1, (int) Math.round(image.getHeight() * scale));
+
+        BufferedImage scaled = new BufferedImage(width, height, BufferedImage.TYPE_BYTE_GRAY);
+        Graphics2D graphics = scaled.createGraphics();
+        try {
+            graphics.setRenderingHint(RenderingHints.KEY_INTERPOLATION, RenderingHints.VALUE_INTERPOLATION_BILINEAR);
+            // Transparent areas end up white instead of black
+            graphics.drawImage(image, 0, 0, width, height, Color.WHITE, null);
+        } finally {
+            graphics.dispose();
+        }
+        return scaled;
+    }
+}
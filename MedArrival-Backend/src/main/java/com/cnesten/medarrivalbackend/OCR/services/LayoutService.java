@@ -0,0 +1,339 @@
+package com.cnesten.medarrivalbackend.OCR.services;
+
+import com.cnesten.medarrivalbackend.Exceptions.OcrTimeoutException;
+import com.cnesten.medarrivalbackend.OCR.Config.OcrProperties;
+import com.cnesten.medarrivalbackend.OCR.DTO.OcrLayoutDTO;
+import com.cnesten.medarrivalbackend.OCR.Enums.LayoutSource;
+import com.cnesten.medarrivalbackend.OCR.Enums.Language;
+import com.cnesten.medarrivalbackend.OCR.Enums.OcrProfile;
+import com.cnesten.medarrivalbackend.OCR.Enums.PdfExtractionStrategy;
+import com.cnesten.medarrivalbackend.OCR.services.Engine.RecognizedText;
+import com.cnesten.medarrivalbackend.OCR.services.Preprocessing.ImageIntake;
+import com.cnesten.medarrivalbackend.Utils.ContentHashed;
+import lombok.RequiredArgsConstructor;
+import net.sourceforge.tess4j.TesseractException;
+import org.apache.pdfbox.pdmodel.PDDocument;
+import org.apache.pdfbox.pdmodel.PDPage;
+import org.apache.pdfbox.pdmodel.common.PDRectangle;
+import org.apache.pdfbox.rendering.ImageType;
+import org.apache.pdfbox.rendering.PDFRenderer;
+import org.apache.pdfbox.text.PDFTextStripper;
+import org.apache.pdfbox.text.TextPosition;
+import org.springframework.cache.annotation.Cacheable;
+import org.springframework.stereotype.Service;
+import org.springframework.web.multipart.MultipartFile;
+
+import java.awt.image.BufferedImage;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Executor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+
+/**
+ * Structured counterpart of the plain-text pipeline: pages, blocks, lines and words with
+ * their boxes. Pages with a usable text layer are laid out from the PDF text positions
+ * without any OCR, the others from Tesseract's word iterator. Results are cached per
+ * document in "layoutCache", next to the plain text in "ocrCache" and "pdfCache".
+ */
+@Service
+@RequiredArgsConstructor
+public class LayoutService {
+    private static final float POINTS_PER_INCH = 72f;
+
+    private final OcrService ocrService;
+    private final TextQualityAnalyzer textQualityAnalyzer;
+    private final LanguageDetectionService languageDetectionService;
+    private final LanguageProbeService languageProbeService;
+    private final OcrProperties ocrProperties;
+    private final FairPageScheduler fairPageScheduler;
+    private final DocumentSpool documentSpool;
+    private final ImageIntake imageIntake;
+
+    @Cacheable(cacheNames = "layoutCache",
+            keyGenerator = "customKeyGenerator",
+            sync = true)
+    public OcrLayoutDTO analyzeImage(MultipartFile imageFile, String language, OcrProfile profile) throws IOException {
+        ImageIntake.IntakeImage intakeImage;
+        try (InputStream inputStream = imageFile.getInputStream()) {
+            intakeImage = imageIntake.read(inputStream);
+        }
+        if (intakeImage == null) {
+            throw new IOException("Unreadable image");
+        }
+        BufferedImage image = intakeImage.image();
+
+        Language ocrLanguage = languageDetectionService.isAuto(language)
+                ? languageProbeService.probeImage(image, contentHash(imageFile))
+                : resolveLanguage(language);
+        OcrProfile ocrProfile = ocrProperties.profileFor(profile, null);
+
+        try {
+            RecognizedText recognized = ocrService.recognizeWords(image, ocrLanguage, ocrProfile);
+            if (isLowConfidence(recognized) && ocrProfile != ocrService.retryProfile()) {
+                recognized = moreConfident(recognized,
+                        ocrService.recognizeWords(image, ocrLanguage, ocrService.retryProfile()));
+            }
+
+            OcrLayoutDTO layout = new OcrLayoutDTO();
+            // Boxes in pixels of the upload, not of the downscaled image OCR ran on
+            layout.getPages().add(ocrPage(0, image, recognized, intakeImage.scaleToSource()));
+            return layout;
+        } catch (TesseractException e) {
+            throw new IOException("Error performing OCR", e);
+        }
+    }
+
+    @Cacheable(cacheNames = "layoutCache",
+            keyGenerator = "customKeyGenerator",
+            condition = "@customKeyGenerator.isContentAddressable(#root.args)",
+            sync = true)
+    public OcrLayoutDTO analyzePdf(InputStream pdfInputStream, String language, OcrProfile profile) throws IOException {
+        OcrProfile ocrProfile = ocrProperties.profileFor(profile, PdfExtractionStrategy.ADAPTIVE);
+        List<CompletableFuture<OcrLayoutDTO.Page>> futures = new ArrayList<>();
+        long documentDeadline = System.nanoTime() + ocrProperties.getDeadlines().getDocument().toNanos();
+        long pageTimeout = ocrProperties.getDeadlines().getPage().toNanos();
+        Path pdfFile = documentSpool.spool(pdfInputStream);
+
+        try {
+            int pageCount;
+            try (PDDocument document = documentSpool.loadPdf(pdfFile)) {
+                pageCount = document.getNumberOfPages();
+            }
+
+            Language documentLanguage = languageDetectionService.isAuto(language)
+                    ? languageProbeService.probePdf(pdfFile, contentHash(pdfInputStream))
+                    : resolveLanguage(language);
+
+            // Same page fan-out as the text extraction, see PdfService
+            Executor documentLane = fairPageScheduler.newLane();
+            for (int pageIndex = 0; pageIndex < pageCount; pageIndex++) {
+                int page = pageIndex;
+                futures.add(CompletableFuture.supplyAsync(() -> {
+                    long pageDeadline = Math.min(documentDeadline, System.nanoTime() + pageTimeout);
+                    return OcrDeadline.within(pageDeadline, () -> {
+                        try {
+                            return analyzePage(pdfFile, page, documentLanguage, ocrProfile);
+                        } catch (IOException | TesseractException e) {
+                            throw new CompletionException(e);
+                        }
+                    });
+                }, documentLane));
+            }
+
+            // A layout with a hole in it is of no use to the caller, any page past its deadline fails the document
+            OcrLayoutDTO layout = new OcrLayoutDTO();
+            for (CompletableFuture<OcrLayoutDTO.Page> future : futures) {
+                layout.getPages().add(future.get(Math.max(0, documentDeadline - System.nanoTime()), TimeUnit.NANOSECONDS));
+            }
+            return layout;
+        } catch (TimeoutException e) {
+            futures.forEach(future -> future.cancel(false));
+            throw new OcrTimeoutException("OCR deadline exceeded");
+        } catch (ExecutionException e) {
+            futures.forEach(future -> future.cancel(false));
+            if (e.getCause() instanceof OcrTimeoutException timeout) {
+                throw timeout;
+            }
+            throw new IOException("Error extracting layout from PDF", e.getCause());
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            futures.forEach(future -> future.cancel(false));
+            throw new IOException("Interrupted while extracting layout from PDF", e);
+        } finally {
+            documentSpool.release(pdfInputStream, pdfFile);
+        }
+    }
+
+    private OcrLayoutDTO.Page analyzePage(Path pdfFile, int pageIndex, Language language, OcrProfile profile) throws IOException, TesseractException {
+        try (PDDocument document = documentSpool.loadPdf(pdfFile)) {
+            PDPage page = document.getPage(pageIndex);
+            float[] size = pageSize(page);
+
+            TextLayerStripper stripper = new TextLayerStripper(pageIndex, size[0], size[1]);
+            stripper.setSortByPosition(true);
+            stripper.setStartPage(pageIndex + 1);
+            stripper.setEndPage(pageIndex + 1);
+            String text = stripper.getText(document);
+
+            TextQualityAnalyzer.TextQuality textQuality = textQualityAnalyzer.analyze(text);
+            if (!textQuality.isProbablyMalExtracted() && !textQuality.isEmpty()) {
+                return stripper.layout.build(null);
+            }
+
+            // Boxes of OCR pages are scaled back from render pixels to PDF points
+            PDFRenderer pdfRenderer = new PDFRenderer(document);
+            int dpi = ocrProperties.profile(profile).getDpi();
+            BufferedImage image = pdfRenderer.renderImageWithDPI(pageIndex, dpi, ImageType.GRAY);
+            RecognizedText recognized = ocrService.recognizeWords(image, language, profile);
+            OcrLayoutDTO.Page result = ocrPage(pageIndex, image, recognized, POINTS_PER_INCH / dpi);
+
+            int retryDpi = Math.max(dpi, ocrProperties.getConfidence().getRetryDpi());
+            if (isLowConfidence(recognized) && (profile != ocrService.retryProfile() || retryDpi > dpi)) {
+                BufferedImage retryImage = pdfRenderer.renderImageWithDPI(pageIndex, retryDpi, ImageType.GRAY);
+                RecognizedText retry = ocrService.recognizeWords(retryImage, language, ocrService.retryProfile());
+                if (moreConfident(recognized, retry) == retry) {
+                    result = ocrPage(pageIndex, retryImage, retry, POINTS_PER_INCH / retryDpi);
+                }
+            }
+            return result;
+        }
+    }
+
+    private static OcrLayoutDTO.Page ocrPage(int pageIndex, BufferedImage image, RecognizedText recognized, float scale) {
+        PageLayout layout = new PageLayout(pageIndex, image.getWidth() * scale, image.getHeight() * scale, LayoutSource.OCR);
+
+        int block = -1;
+        int line = -1;
+        for (RecognizedText.Word word : recognized.words()) {
+            if (word.block() != block) {
+                layout.endBlock();
+                block = word.block();
+            }
+            if (word.line() != line) {
+                layout.endLine();
+                line = word.line();
+            }
+            layout.word(word.text(), word.confidence(),
+                    word.left() * scale, word.top() * scale, word.right() * scale, word.bottom() * scale);
+        }
+        return layout.build(recognized.confidence());
+    }
+
+    // Text positions are reported in the rotated page frame, the page size follows it
+    private static float[] pageSize(PDPage page) {
+        PDRectangle cropBox = page.getCropBox();
+        int rotation = page.getRotation();
+        return rotation % 180 == 0
+                ? new float[]{cropBox.getWidth(), cropBox.getHeight()}
+                : new float[]{cropBox.getHeight(), cropBox.getWidth()};
+    }
+
+    private boolean isLowConfidence(RecognizedText recognized) {
+        Float confidence = recognized.confidence();
+        return confidence != null && confidence < ocrProperties.getConfidence().getMinPageConfidence();
+    }
+
+    private static RecognizedText moreConfident(RecognizedText first, RecognizedText retry) {
+        if (retry.confidence() == null
+                || (first.confidence() != null && retry.confidence() <= first.confidence())) {
+            return first;
+        }
+        return retry;
+    }
+
+    private Language resolveLanguage(String language) {
+        try {
+            return languageDetectionService.resolveLanguage(language);
+        } catch (Exception e) {
+            throw new IllegalArgumentException("Unsupported Language");
+        }
+    }
+
+    private static String contentHash(Object content) throws IOException {
+        return content instanceof ContentHashed hashed ? hashed.getContentHash() : null;
+    }
+
+    // PDFTextStripper hands words, line ends and paragraph ends in reading order, which map
+    // directly onto words, lines and blocks. The plain text is still produced for the quality check.
+    private static class TextLayerStripper extends PDFTextStripper {
+        private final PageLayout layout;
+
+        TextLayerStripper(int pageIndex, float width, float height) throws IOException {
+            this.layout = new PageLayout(pageIndex, width, height, LayoutSource.TEXT_LAYER);
+        }
+
+        @Override
+        protected void writeString(String text, List<TextPosition> textPositions) throws IOException {
+            super.writeString(text, textPositions);
+            if (textPositions.isEmpty()) {
+                return;
+            }
+
+            float left = Float.MAX_VALUE;
+            float top = Float.MAX_VALUE;
+            float right = -Float.MAX_VALUE;
+            float bottom = -Float.MAX_VALUE;
+            for (TextPosition position : textPositions) {
+                left = Math.min(left, position.getXDirAdj());
+                right = Math.max(right, position.getXDirAdj() + position.getWidthDirAdj());
+                // yDirAdj is the baseline, glyphs extend above it
+                top = Math.min(top, position.getYDirAdj() - position.getHeightDir());
+                bottom = Math.max(bottom, position.getYDirAdj());
+            }
+            layout.word(text, null, left, top, right, bottom);
+        }
+
+        @Override
+        protected void writeLineSeparator() throws IOException {
+            super.writeLineSeparator();
+            layout.endLine();
+        }
+
+        @Override
+        protected void writeParagraphEnd() throws IOException {
+            super.writeParagraphEnd();
+            layout.endBlock();
+        }
+    }
+
+    // Accumulates words into lines and blocks, boxes of lines and blocks are the union of their words
+    private static class PageLayout {
+        private final OcrLayoutDTO.Page page = new OcrLayoutDTO.Page();
+        private OcrLayoutDTO.Block block;
+        private OcrLayoutDTO.Line line;
+
+        PageLayout(int index, float width, float height, LayoutSource source) {
+            page.setIndex(index);
+            page.setWidth(width);
+            page.setHeight(height);
+            page.setSource(source);
+        }
+
+        void word(String text, Float confidence, float left, float top, float right, float bottom) {
+            String wordText = text == null ? "" : text.strip();
+            if (wordText.isEmpty()) {
+                return;
+            }
+            if (block == null) {
+                block = new OcrLayoutDTO.Block(left, top, right, bottom, new ArrayList<>());
+                page.getBlocks().add(block);
+            }
+            if (line == null) {
+                line = new OcrLayoutDTO.Line(left, top, right, bottom, "", new ArrayList<>());
+                block.getLines().add(line);
+            }
+
+            line.getWords().add(new OcrLayoutDTO.Word(wordText, confidence, left, top, right, bottom));
+            line.setText(line.getText().isEmpty() ? wordText : line.getText() + " " + wordText);
+            line.setLeft(Math.min(line.getLeft(), left));
+            line.setTop(Math.min(line.getTop(), top));
+            line.setRight(Math.max(line.getRight(), right));
+            line.setBottom(Math.max(line.getBottom(), bottom));
+            block.setLeft(Math.min(block.getLeft(), left));
+            block.setTop(Math.min(block.getTop(), top));
+            block.setRight(Math.max(block.getRight(), right));
+            block.setBottom(Math.max(block.getBottom(), bottom));
+        }
+
+        void endLine() {
+            line = null;
+        }
+
+        void endBlock() {
+            line = null;
+            block = null;
+        }
+
+        OcrLayoutDTO.Page build(Float confidence) {
+            page.setConfidence(confidence);
+            return page;
+        }
+    }
+}
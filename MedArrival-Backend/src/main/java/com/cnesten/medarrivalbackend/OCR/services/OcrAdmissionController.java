@@ -0,0 +1,247 @@
+package com.cnesten.medarrivalbackend.OCR.services;
+
+import com.cnesten.medarrivalbackend.Exceptions.OcrOverloadedException;
+import com.cnesten.medarrivalbackend.OCR.Config.OcrProperties;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.stereotype.Service;
+
+import java.util.ArrayDeque;
+import java.util.Deque;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.locks.Condition;
+import java.util.concurrent.locks.ReentrantLock;
+
+/**
+ * Gate in front of the synchronous OCR endpoints. Requests are weighted by their page
+ * count, estimated from the upload size, and admitted while the pages in flight stay under {@code ocr.admission.max-pages}.
+ * Beyond that they wait in a bounded queue served round-robin per client, and are
+ * rejected with {@link OcrOverloadedException} (a 429) when the queue is full or the
+ * wait runs out. A single client never holds more than its configured share while
+ * others are waiting, so a burst from one scanner cannot lock everyone else out.
+ */
+@Slf4j
+@Service
+public class OcrAdmissionController {
+    private final OcrProperties ocrProperties;
+
+    private final ReentrantLock lock = new ReentrantLock(true);
+    private final Map<String, ClientState> clients = new HashMap<>();
+    // Clients with waiting requests, in turn order
+    private final Deque<ClientState> turnOrder = new ArrayDeque<>();
+    private int inFlightPages;
+    private int queued;
+
+    private final Timer waitTimer;
+    private final Counter rejectedQueueFull;
+    private final Counter rejectedTimeout;
+
+    public OcrAdmissionController(OcrProperties ocrProperties, MeterRegistry meterRegistry) {
+        this.ocrProperties = ocrProperties;
+
+        Gauge.builder("ocr.admission.queued", this, OcrAdmissionController::queued)
+                .register(meterRegistry);
+        Gauge.builder("ocr.admission.pages.in_flight", this, OcrAdmissionController::inFlightPages)
+                .register(meterRegistry);
+        this.waitTimer = Timer.builder("ocr.admission.wait")
+                .publishPercentiles(0.5, 0.95, 0.99)
+                .register(meterRegistry);
+        this.rejectedQueueFull = Counter.builder("ocr.admission.rejected")
+                .tag("reason", "queue_full")
+                .register(meterRegistry);
+        this.rejectedTimeout = Counter.builder("ocr.admission.rejected")
+                .tag("reason", "timeout")
+                .register(meterRegistry);
+    }
+
+    public Permit admit(String clientId, int pages) {
+        OcrProperties.Admission config = ocrProperties.getAdmission();
+        // A document larger than the whole budget still runs, alone
+        int weight = Math.max(1, Math.min(pages, config.getMaxPages()));
+        long start = System.nanoTime();
+
+        lock.lock();
+        try {
+            ClientState client = clients.computeIfAbsent(clientId, ClientState::new);
+
+            if (queued == 0 && fits(client, weight)) {
+                return grant(client, weight, start);
+            }
+
+            if (queued >= config.getMaxQueued() || client.waiting.size() >= config.getMaxQueuedPerClient()) {
+                rejectedQueueFull.increment();
+                forgetIfIdle(client);
+                throw overloaded("OCR queue is full");
+            }
+
+            Ticket ticket = new Ticket(weight, lock.newCondition());
+            client.waiting.addLast(ticket);
+            if (client.waiting.size() == 1) {
+                turnOrder.addLast(client);
+            }
+            queued++;
+            dispatch();
+
+            long remainingNanos = config.getMaxWait().toNanos();
+            while (!ticket.granted && remainingNanos > 0) {
+                try {
+                    remainingNanos = ticket.condition.awaitNanos(remainingNanos);
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                    break;
+                }
+            }
+
+            if (!ticket.granted) {
+                withdraw(client, ticket);
+                rejectedTimeout.increment();
+                throw overloaded("Timed out waiting for OCR capacity");
+            }
+            waitTimer.record(System.nanoTime() - start, TimeUnit.NANOSECONDS);
+            return new Permit(client, weight);
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    private Permit grant(ClientState client, int weight, long start) {
+        inFlightPages += weight;
+        client.inFlightPages += weight;
+        waitTimer.record(System.nanoTime() - start, TimeUnit.NANOSECONDS);
+        return new Permit(client, weight);
+    }
+
+    // Round-robin over waiting clients, one request per client per pass, until nothing fits
+    private void dispatch() {
+        boolean granted = true;
+        while (granted && !turnOrder.isEmpty()) {
+            granted = false;
+            for (int i = turnOrder.size(); i > 0; i--) {
+                ClientState client = turnOrder.pollFirst();
+                Ticket head = client.waiting.peekFirst();
+
+                if (head != null && fits(client, head.weight)) {
+                    client.waiting.pollFirst();
+                    queued--;
+                    inFlightPages += head.weight;
+                    client.inFlightPages += head.weight;
+                    head.granted = true;
+                    head.condition.signal();
+                    granted = true;
+                }
+
+                if (!client.waiting.isEmpty()) {
+                    turnOrder.addLast(client);
+                }
+            }
+        }
+    }
+
+    private boolean fits(ClientState client, int weight) {
+        OcrProperties.Admission config = ocrProperties.getAdmission();
+        if (inFlightPages + weight > config.getMaxPages()) {
+            return false;
+        }
+        // Idle clients always get their first request in, busy ones are capped to their share
+        int clientLimit = (int) Math.max(1, config.getMaxPages() * config.getMaxClientShare());
+        return client.inFlightPages == 0 || client.inFlightPages + weight <= clientLimit;
+    }
+
+    private void withdraw(ClientState client, Ticket ticket) {
+        if (client.waiting.remove(ticket)) {
+            queued--;
+            if (client.waiting.isEmpty()) {
+                turnOrder.remove(client);
+            }
+        }
+        forgetIfIdle(client);
+        // The withdrawn request may have been holding up smaller ones behind it
+        dispatch();
+    }
+
+    private void release(Permit permit) {
+        lock.lock();
+        try {
+            inFlightPages -= permit.weight;
+            permit.client.inFlightPages -= permit.weight;
+            forgetIfIdle(permit.client);
+            dispatch();
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    private void forgetIfIdle(ClientState client) {
+        if (client.inFlightPages == 0 && client.waiting.isEmpty()) {
+            clients.remove(client.id);
+        }
+    }
+
+    private OcrOverloadedException overloaded(String message) {
+        return new OcrOverloadedException(message, ocrProperties.getAdmission().getRetryAfter());
+    }
+
+    private int queued() {
+        lock.lock();
+        try {
+            return queued;
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    private int inFlightPages() {
+        lock.lock();
+        try {
+            return inFlightPages;
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    // Held for the duration of the OCR work, closing it twice is harmless
+    public class Permit implements AutoCloseable {
+        private final ClientState client;
+        private final int weight;
+        private boolean released;
+
+        private Permit(ClientState client, int weight) {
+            this.client = client;
+            this.weight = weight;
+        }
+
+        @Override
+        public synchronized void close() {
+            if (!released) {
+                released = true;
+                release(this);
+            }
+        }
+    }
+
+    private static class ClientState {
+        private final String id;
+        private final Deque<Ticket> waiting = new ArrayDeque<>();
+        private int inFlightPages;
+
+        ClientState(String id) {
+            this.id = id;
+        }
+    }
+
+    private static class Ticket {
+        private final int weight;
+        private final Condition condition;
+        private boolean granted;
+
+        Ticket(int weight, Condition condition) {
+            this.weight = weight;
+            this.condition = condition;
+        }
+    }
+}
@@ -0,0 +1,180 @@
+package com.cnesten.medarrivalbackend.OCR.services;
+
+import com.cnesten.medarrivalbackend.OCR.Config.OcrProperties;
+import com.cnesten.medarrivalbackend.OCR.DTO.OcrBatchResultDTO;
+import com.cnesten.medarrivalbackend.OCR.Enums.OcrJobStatus;
+import com.cnesten.medarrivalbackend.OCR.Enums.OcrProfile;
+import com.cnesten.medarrivalbackend.Utils.FileSystemMultipartFile;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Qualifier;
+import org.springframework.core.task.TaskRejectedException;
+import org.springframework.http.MediaType;
+import org.springframework.stereotype.Service;
+import org.springframework.web.multipart.MultipartFile;
+import org.springframework.web.servlet.mvc.method.annotation.SseEmitter;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.Executor;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Processes the files of one upload concurrently and streams a "result" event per file
+ * as soon as it is done, followed by a single "complete" event. Pages of all documents
+ * share the page executor through {@link FairPageScheduler}, so small files are not
+ * stuck behind a long PDF of the same batch.
+ */
+@Slf4j
+@Service
+public class OcrBatchService {
+    private final FileProcessingService fileProcessingService;
+    private final LanguageDetectionService languageDetectionService;
+    private final OcrProperties ocrProperties;
+    private final Executor ocrBatchExecutor;
+    private final DocumentSpool documentSpool;
+
+    public OcrBatchService(FileProcessingService fileProcessingService,
+                           LanguageDetectionService languageDetectionService,
+                           OcrProperties ocrProperties,
+                           @Qualifier("ocrBatchExecutor") Executor ocrBatchExecutor,
+                           DocumentSpool documentSpool) {
+        this.fileProcessingService = fileProcessingService;
+        this.languageDetectionService = languageDetectionService;
+        this.ocrProperties = ocrProperties;
+        this.ocrBatchExecutor = ocrBatchExecutor;
+        this.documentSpool = documentSpool;
+    }
+
+    public SseEmitter submit(List<MultipartFile> files, String language, OcrProfile profile,
+                             OcrAdmissionController.Permit permit) throws Exception {
+        OcrProperties.Batch config = ocrProperties.getBatch();
+
+        if (files == null || files.isEmpty()) {
+            throw new IllegalArgumentException("No files to process");
+        }
+        if (files.size() > config.getMaxFiles()) {
+            throw new IllegalArgumentException("At most " + config.getMaxFiles() + " files per batch");
+        }
+        String batchLanguage = languageDetectionService.getLanguageFromRequest(language);
+
+        // Uploads are spooled before the request thread returns, the container may clean up its parts
+        // afterwards. Each spooled file is deleted as soon as its result is out.
+        List<FileSystemMultipartFile> uploads = new ArrayList<>(files.size());
+        try {
+            for (MultipartFile file : files) {
+                // Digested by the same copy, the pipeline keys its caches without reading the part again
+                uploads.add(documentSpool.spool(file));
+            }
+        } catch (IOException | RuntimeException e) {
+            uploads.forEach(upload -> documentSpool.delete(upload.getPath()));
+            throw e;
+        }
+
+        SseEmitter emitter = new SseEmitter(config.getTimeout().toMillis());
+        BatchStream stream = new BatchStream(emitter, uploads.size(), permit);
+        emitter.onTimeout(stream::close);
+        emitter.onError(e -> stream.close());
+
+        for (int index = 0; index < uploads.size(); index++) {
+            int fileIndex = index;
+            FileSystemMultipartFile upload = uploads.get(index);
+            try {
+                ocrBatchExecutor.execute(() -> {
+                    try {
+                        stream.send(process(fileIndex, upload, batchLanguage, profile));
+                    } finally {
+                        documentSpool.delete(upload.getPath());
+                    }
+                });
+            } catch (TaskRejectedException e) {
+                documentSpool.delete(upload.getPath());
+                stream.send(failed(fileIndex, upload, "OCR is overloaded, retry later", System.nanoTime()));
+            }
+        }
+        return emitter;
+    }
+
+    private OcrBatchResultDTO process(int index, MultipartFile file, String language, OcrProfile profile) {
+        long start = System.nanoTime();
+
+        if (!fileProcessingService.isSupported(file.getContentType())) {
+            return failed(index, file, "Unsupported file type", start);
+        }
+
+        try {
+            String text = fileProcessingService.processFile(file, language, profile);
+
+            OcrBatchResultDTO result = result(index, file, start);
+            result.setStatus(OcrJobStatus.COMPLETED);
+            result.setText(text);
+            return result;
+        } catch (IOException | RuntimeException e) {
+            log.error("Batch OCR of {} failed", file.getOriginalFilename(), e);
+            return failed(index, file, e.getMessage(), start);
+        }
+    }
+
+    private static OcrBatchResultDTO failed(int index, MultipartFile file, String errorMessage, long start) {
+        OcrBatchResultDTO result = result(index, file, start);
+        result.setStatus(OcrJobStatus.FAILED);
+        result.setErrorMessage(errorMessage);
+        return result;
+    }
+
+    private static OcrBatchResultDTO result(int index, MultipartFile file, long start) {
+        OcrBatchResultDTO result = new OcrBatchResultDTO();
+        result.setIndex(index);
+        result.setFileName(file.getOriginalFilename());
+        result.setContentType(file.getContentType());
+        result.setDurationMillis((System.nanoTime() - start) / 1_000_000);
+        return result;
+    }
+
+    private static class BatchStream {
+        private final SseEmitter emitter;
+        private final AtomicInteger remaining;
+        private final AtomicBoolean closed = new AtomicBoolean();
+        private final OcrAdmissionController.Permit permit;
+
+        BatchStream(SseEmitter emitter, int fileCount, OcrAdmissionController.Permit permit) {
+            this.emitter = emitter;
+            this.remaining = new AtomicInteger(fileCount);
+            this.permit = permit;
+        }
+
+        void send(OcrBatchResultDTO result) {
+            if (!closed.get()) {
+                try {
+                    emitter.send(SseEmitter.event()
+                            .name("result")
+                            .id(String.valueOf(result.getIndex()))
+                            .data(result, MediaType.APPLICATION_JSON));
+                } catch (IOException | IllegalStateException e) {
+                    // Client went away, the remaining files still finish and land in the OCR caches
+                    log.debug("Could not stream batch result {}", result.getIndex(), e);
+                    close();
+                }
+            }
+
+            if (remaining.decrementAndGet() > 0) {
+                return;
+            }
+            // Capacity is held until the work is done, even when the client stopped listening
+            permit.close();
+            if (closed.compareAndSet(false, true)) {
+                try {
+                    emitter.send(SseEmitter.event().name("complete").data("done"));
+                    emitter.complete();
+                } catch (IOException | IllegalStateException e) {
+                    log.debug("Could not complete batch stream", e);
+                }
+            }
+        }
+
+        void close() {
+            closed.set(true);
+        }
+    }
+}
@@ -0,0 +1,37 @@
+package com.cnesten.medarrivalbackend.OCR.services;
+
+import java.time.Duration;
+import java.util.function.Supplier;
+
+// Deadline of the page being processed on the current thread, read by the OCR engine call deep
+// below the cached service methods without becoming part of their cache keys
+public final class OcrDeadline {
+    private static final ThreadLocal<Long> DEADLINE_NANOS = new ThreadLocal<>();
+
+    private OcrDeadline() {
+    }
+
+    public static <T> T within(long deadlineNanos, Supplier<T> task) {
+        Long previous = DEADLINE_NANOS.get();
+        DEADLINE_NANOS.set(previous == null ? deadlineNanos : Math.min(previous, deadlineNanos));
+        try {
+            return task.get();
+        } finally {
+            if (previous == null) {
+                DEADLINE_NANOS.remove();
+            } else {
+                DEADLINE_NANOS.set(previous);
+            }
+        }
+    }
+
+    // Time left on the current deadline, never more than the cap
+    public static long remainingMillis(Duration cap) {
+        long remaining = cap.toMillis();
+        Long deadline = DEADLINE_NANOS.get();
+        if (deadline != null) {
+            remaining = Math.min(remaining, (deadline - System.nanoTime()) / 1_000_000);
+        }
+        return Math.max(0, remaining);
+    }
+}
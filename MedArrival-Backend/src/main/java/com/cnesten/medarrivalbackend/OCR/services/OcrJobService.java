@@ -0,0 +1,278 @@
+package com.cnesten.medarrivalbackend.OCR.services;
+
+import com.cnesten.medarrivalbackend.AppStorage.FileStorageService;
+import com.cnesten.medarrivalbackend.Exceptions.ResourceNotFoundException;
+import com.cnesten.medarrivalbackend.OCR.Config.OcrProperties;
+import com.cnesten.medarrivalbackend.OCR.DTO.OcrTextDTO;
+import com.cnesten.medarrivalbackend.OCR.Enums.OcrJobStatus;
+import com.cnesten.medarrivalbackend.OCR.Enums.OcrProfile;
+import com.cnesten.medarrivalbackend.OCR.Models.OcrJob;
+import com.cnesten.medarrivalbackend.OCR.Models.OcrJobPage;
+import com.cnesten.medarrivalbackend.OCR.Repositories.OcrJobPageRepository;
+import com.cnesten.medarrivalbackend.OCR.Repositories.OcrJobRepository;
+import com.cnesten.medarrivalbackend.Utils.FileSystemMultipartFile;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Qualifier;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.core.io.Resource;
+import org.springframework.core.task.TaskExecutor;
+import org.springframework.core.task.TaskRejectedException;
+import org.springframework.orm.ObjectOptimisticLockingFailureException;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+import org.springframework.web.multipart.MultipartFile;
+
+import java.net.InetAddress;
+import java.net.UnknownHostException;
+import java.time.LocalDateTime;
+import java.util.List;
+import java.util.Optional;
+import java.util.Set;
+import java.util.UUID;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Runs OCR of uploaded documents in the background. Jobs and their page results are
+ * persisted so that queued or interrupted work is picked up again after a restart.
+ * A running job records the node that owns it and a heartbeat, and is taken over by any node
+ * once the heartbeat is older than the lease. A node restarted under a configured
+ * ocr.jobs.node-id takes its interrupted jobs back at once; without one the id changes with
+ * the host name of the container, and interrupted jobs wait for their lease to run out.
+ */
+@Slf4j
+@Service
+public class OcrJobService {
+    private static final String OCR_JOBS_DIR = "ocr-jobs";
+
+    private final OcrJobRepository jobRepository;
+    private final OcrJobPageRepository pageRepository;
+    private final FileStorageService fileStorageService;
+    private final FileProcessingService fileProcessingService;
+    private final LanguageDetectionService languageDetectionService;
+    private final OcrProgressPublisher progressPublisher;
+    private final TaskExecutor ocrJobExecutor;
+    private final OcrProperties.Jobs config;
+    private final String nodeId;
+
+    // Jobs dispatched to a worker of this node, guards against double dispatch by the sweep
+    private final Set<UUID> inFlight = ConcurrentHashMap.newKeySet();
+
+    public OcrJobService(OcrJobRepository jobRepository,
+                         OcrJobPageRepository pageRepository,
+                         FileStorageService fileStorageService,
+                         FileProcessingService fileProcessingService,
+                         LanguageDetectionService languageDetectionService,
+                         OcrProgressPublisher progressPublisher,
+                         @Qualifier("ocrJobExecutor") TaskExecutor ocrJobExecutor,
+                         OcrProperties ocrProperties) {
+        this.jobRepository = jobRepository;
+        this.pageRepository = pageRepository;
+        this.fileStorageService = fileStorageService;
+        this.fileProcessingService = fileProcessingService;
+        this.languageDetectionService = languageDetectionService;
+        this.progressPublisher = progressPublisher;
+        this.ocrJobExecutor = ocrJobExecutor;
+        this.config = ocrProperties.getJobs();
+        this.nodeId = config.getNodeId().isBlank() ? defaultNodeId() : config.getNodeId();
+    }
+
+    public OcrJob submit(MultipartFile file, String language, OcrProfile profile) throws Exception {
+        // Fail fast on bad input instead of failing the job later
+        String jobLanguage = languageDetectionService.getLanguageFromRequest(language);
+        if (!fileProcessingService.isSupported(file.getContentType())) {
+            throw new IllegalArgumentException("Unsupported file type");
+        }
+
+        Optional<String> storedFilePath = fileStorageService.store(file, OCR_JOBS_DIR);
+        if (storedFilePath.isEmpty()) {
+            throw new RuntimeException("Failed to store file");
+        }
+
+        OcrJob job = new OcrJob();
+        job.setStatus(OcrJobStatus.QUEUED);
+        job.setFileName(storedFilePath.get());
+        job.setOriginalName(file.getOriginalFilename());
+        job.setContentType(file.getContentType());
+        job.setLanguage(jobLanguage);
+        job.setProfile(profile);
+
+        OcrJob savedJob = jobRepository.save(job);
+        dispatch(savedJob.getId());
+        return savedJob;
+    }
+
+    public OcrJob getJob(UUID jobId) {
+        return jobRepository.findById(jobId)
+                .orElseThrow(() -> new ResourceNotFoundException("OCR job not found"));
+    }
+
+    public long countProcessedPages(UUID jobId) {
+        return pageRepository.countByJobId(jobId);
+    }
+
+    public List<OcrJobPage> getPages(UUID jobId) {
+        getJob(jobId);
+        return pageRepository.findByJobIdOrderByPageIndexAsc(jobId);
+    }
+
+    // Running jobs of other nodes are left alone, they may still be working on them
+    @EventListener(ApplicationReadyEvent.class)
+    public void recoverJobs() {
+        int interrupted = jobRepository.releaseOwned(OcrJobStatus.RUNNING, OcrJobStatus.QUEUED, nodeId);
+        if (interrupted > 0) {
+            log.info("Re-queued {} OCR jobs interrupted by a restart of {}", interrupted, nodeId);
+        }
+        dispatchQueuedJobs();
+    }
+
+    @Scheduled(fixedDelayString = "${ocr.jobs.dispatch-interval:30s}")
+    public void dispatchQueuedJobs() {
+        // Jobs still waiting for their first page would otherwise look abandoned
+        LocalDateTime now = LocalDateTime.now();
+        inFlight.forEach(jobId -> jobRepository.heartbeat(jobId, nodeId, now));
+
+        int abandoned = jobRepository.releaseExpired(OcrJobStatus.RUNNING, OcrJobStatus.QUEUED, now.minus(config.getLease()));
+        if (abandoned > 0) {
+            log.info("Re-queued {} OCR jobs whose owner stopped sending heartbeats", abandoned);
+        }
+
+        for (OcrJob job : jobRepository.findByStatusOrderByCreatedAtAsc(OcrJobStatus.QUEUED)) {
+            if (!dispatch(job.getId())) {
+                break;
+            }
+        }
+    }
+
+    private boolean dispatch(UUID jobId) {
+        if (!inFlight.add(jobId)) {
+            return true;
+        }
+
+        try {
+            ocrJobExecutor.execute(() -> {
+                try {
+                    run(jobId);
+                } finally {
+                    inFlight.remove(jobId);
+                }
+            });
+            return true;
+        } catch (TaskRejectedException e) {
+            // Stays QUEUED in the database, the next sweep dispatches it
+            inFlight.remove(jobId);
+            log.debug("OCR job queue is full, job {} deferred", jobId);
+            return false;
+        }
+    }
+
+    private void run(UUID jobId) {
+        OcrJob job = claim(jobId);
+        if (job == null) {
+            return;
+        }
+
+        try {
+            // Drop partial results of a run interrupted by a restart
+            pageRepository.deleteByJobId(jobId);
+
+            Resource resource = fileStorageService.loadAsResource(job.getFileName())
+                    .orElseThrow(() -> new ResourceNotFoundException("Stored OCR upload not found"));
+
+            // Read from the stored file on demand, the upload is never loaded whole into the heap
+            MultipartFile file = new FileSystemMultipartFile(
+                    resource.getFile().toPath(),
+                    job.getFileName(),
+                    job.getOriginalName(),
+                    job.getContentType()
+            );
+
+            String result = fileProcessingService.processFile(file, job.getLanguage(), job.getProfile(), new OcrPageListener() {
+                @Override
+                public void onDocumentStarted(int pageCount) {
+                    jobRepository.updateTotalPages(jobId, pageCount);
+                    progressPublisher.publishStatus(jobId, OcrJobStatus.RUNNING, pageCount);
+                }
+
+                @Override
+                public void onPageCompleted(int pageIndex, int pageCount, OcrTextDTO page) {
+                    // A job taken over by another node is no longer written to from here
+                    if (jobRepository.heartbeat(jobId, nodeId, LocalDateTime.now()) == 0) {
+                        return;
+                    }
+                    savePage(jobId, pageIndex, page);
+                    progressPublisher.publishPage(jobId, pageIndex, pageCount, page);
+                }
+            });
+
+            // Extraction failures throw and end up FAILED below, never as a completed error text
+            finish(jobId, OcrJobStatus.COMPLETED, result, null);
+        } catch (Exception e) {
+            log.error("OCR job {} failed", jobId, e);
+            finish(jobId, OcrJobStatus.FAILED, null, e.getMessage());
+        }
+    }
+
+    private OcrJob claim(UUID jobId) {
+        try {
+            OcrJob job = jobRepository.findById(jobId).orElse(null);
+            if (job == null || job.getStatus() != OcrJobStatus.QUEUED) {
+                return null;
+            }
+
+            job.setStatus(OcrJobStatus.RUNNING);
+            job.setOwner(nodeId);
+            job.setStartedAt(LocalDateTime.now());
+            job.setHeartbeatAt(job.getStartedAt());
+            return jobRepository.save(job);
+        } catch (ObjectOptimisticLockingFailureException e) {
+            // Claimed concurrently by another worker
+            return null;
+        }
+    }
+
+    private void savePage(UUID jobId, int pageIndex, OcrTextDTO pageText) {
+        OcrJobPage page = new OcrJobPage();
+        page.setJob(jobRepository.getReferenceById(jobId));
+        page.setPageIndex(pageIndex);
+        page.setText(pageText.getText());
+        page.setConfidence(pageText.getConfidence());
+        page.setReprocessed(pageText.isReprocessed());
+        pageRepository.save(page);
+    }
+
+    private void finish(UUID jobId, OcrJobStatus status, String result, String errorMessage) {
+        OcrJob job = getJob(jobId);
+        if (!nodeId.equals(job.getOwner())) {
+            log.warn("OCR job {} was taken over by another node, its {} outcome here is dropped", jobId, status);
+            return;
+        }
+        job.setStatus(status);
+        job.setResult(result);
+        job.setErrorMessage(errorMessage != null && errorMessage.length() > 1000
+                ? errorMessage.substring(0, 1000)
+                : errorMessage);
+        job.setFinishedAt(LocalDateTime.now());
+        try {
+            jobRepository.save(job);
+        } catch (ObjectOptimisticLockingFailureException e) {
+            // Taken over between the owner check and the save
+            log.warn("OCR job {} was taken over by another node, its {} outcome here is dropped", jobId, status);
+            return;
+        }
+        progressPublisher.publishStatus(jobId, status, job.getTotalPages());
+
+        // Results are persisted, the upload is no longer needed
+        fileStorageService.delete(job.getFileName());
+    }
+
+    // Unique per process, but a new container comes up under a new host name
+    private static String defaultNodeId() {
+        long pid = ProcessHandle.current().pid();
+        try {
+            return InetAddress.getLocalHost().getHostName() + "-" + pid;
+        } catch (UnknownHostException e) {
+            return UUID.randomUUID() + "-" + pid;
+        }
+    }
+}
@@ -0,0 +1,93 @@
+package com.cnesten.medarrivalbackend.OCR.services;
+
+import com.cnesten.medarrivalbackend.OCR.Enums.OcrProfile;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Tags;
+import io.micrometer.core.instrument.Timer;
+import lombok.RequiredArgsConstructor;
+import org.springframework.stereotype.Component;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Meters of the OCR pipeline, exposed on /actuator/metrics and /actuator/prometheus.
+ * <ul>
+ *     <li>{@code ocr.stage}: time of one stage (load, text_strip, image_detection, render,
+ *     decode, binarize, recognize) tagged by language, PDF extraction strategy, OCR profile and
+ *     page type. Engine stages (binarize, recognize) and uploaded images have no strategy, "none".</li>
+ *     <li>{@code ocr.page}: wall time of a whole PDF page</li>
+ *     <li>{@code ocr.fallback}: text layers rejected in favour of OCR, by reason</li>
+ *     <li>{@code ocr.retries}: low confidence results sent for a second pass</li>
+ *     <li>{@code ocr.cache.gets}: cache lookups by cache, result and tier</li>
+ *     <li>{@code ocr.cache.coalesced}: misses that waited on an identical load in flight</li>
+ *     <li>{@code ocr.timeouts}: work given up past its deadline, by scope</li>
+ * </ul>
+ */
+@Component
+@RequiredArgsConstructor
+public class OcrMetrics {
+    public static final String LOAD = "load";
+    public static final String TEXT_STRIP = "text_strip";
+    public static final String IMAGE_DETECTION = "image_detection";
+    public static final String RENDER = "render";
+    public static final String DECODE = "decode";
+    public static final String BINARIZE = "binarize";
+    public static final String RECOGNIZE = "recognize";
+
+    // Page types: kept text layer, whole page recognized, or an uploaded image
+    public static final String TEXT_PAGE = "text";
+    public static final String IMAGE_PAGE = "image";
+    public static final String UPLOAD = "upload";
+
+    // Strategy of stages that do not depend on how the PDF is extracted
+    public static final String NO_STRATEGY = "none";
+
+    private final MeterRegistry meterRegistry;
+
+    public static Tags tags(String language, String strategy, OcrProfile profile, String page) {
+        return Tags.of("language", language, "strategy", strategy, "profile", profile.name().toLowerCase(), "page", page);
+    }
+
+    // Time from startNanos to now
+    public void recordStage(String stage, long startNanos, Tags tags) {
+        recordStageNanos(stage, System.nanoTime() - startNanos, tags);
+    }
+
+    public void recordStageNanos(String stage, long nanos, Tags tags) {
+        Timer.builder("ocr.stage")
+                .description("Time spent in one stage of the OCR pipeline")
+                .tags(tags)
+                .tag("stage", stage)
+                .register(meterRegistry)
+                .record(nanos, TimeUnit.NANOSECONDS);
+    }
+
+    public void recordPage(long startNanos, Tags tags) {
+        Timer.builder("ocr.page")
+                .description("Time spent on one PDF page, all stages included")
+                .tags(tags)
+                .register(meterRegistry)
+                .record(System.nanoTime() - startNanos, TimeUnit.NANOSECONDS);
+    }
+
+    public void countFallback(String reason, String language) {
+        meterRegistry.counter("ocr.fallback", "reason", reason, "language", language).increment();
+    }
+
+    public void countRetry(Tags tags) {
+        meterRegistry.counter("ocr.retries", tags).increment();
+    }
+
+    // tier is where a hit was served from, "none" for a miss
+    public void countCacheGet(String cache, boolean hit, String tier) {
+        meterRegistry.counter("ocr.cache.gets", "cache", cache, "result", hit ? "hit" : "miss", "tier", tier).increment();
+    }
+
+    public void countCoalesced(String cache) {
+        meterRegistry.counter("ocr.cache.coalesced", "cache", cache).increment();
+    }
+
+    public void countTimeout(String scope) {
+        meterRegistry.counter("ocr.timeouts", "scope", scope).increment();
+    }
+}
@@ -0,0 +1,15 @@
+package com.cnesten.medarrivalbackend.OCR.services;
+
+import com.cnesten.medarrivalbackend.OCR.DTO.OcrTextDTO;
+
+// Callbacks are invoked from OCR worker threads, pages may complete out of order
+public interface OcrPageListener {
+    OcrPageListener NONE = new OcrPageListener() {
+    };
+
+    default void onDocumentStarted(int pageCount) {
+    }
+
+    default void onPageCompleted(int pageIndex, int pageCount, OcrTextDTO page) {
+    }
+}
@@ -0,0 +1,56 @@
+package com.cnesten.medarrivalbackend.OCR.services;
+
+import com.cnesten.medarrivalbackend.OCR.DTO.OcrJobEventDTO;
+import com.cnesten.medarrivalbackend.OCR.DTO.OcrTextDTO;
+import com.cnesten.medarrivalbackend.OCR.Enums.OcrJobStatus;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.messaging.MessagingException;
+import org.springframework.messaging.simp.SimpMessagingTemplate;
+import org.springframework.stereotype.Service;
+
+import java.util.UUID;
+
+/**
+ * Publishes OCR job progress to {@code /topic/ocr/jobs/{jobId}} as soon as each page is
+ * recognized. Pages finished before the client subscribed are available from
+ * {@code GET /api/ocr/jobs/{id}/pages}.
+ */
+@Slf4j
+@Service
+@RequiredArgsConstructor
+public class OcrProgressPublisher {
+    private static final String JOB_TOPIC = "/topic/ocr/jobs/";
+
+    private final SimpMessagingTemplate messagingTemplate;
+
+    public void publishStatus(UUID jobId, OcrJobStatus status, Integer pageCount) {
+        OcrJobEventDTO event = new OcrJobEventDTO();
+        event.setJobId(jobId);
+        event.setType(OcrJobEventDTO.Type.STATUS);
+        event.setStatus(status);
+        event.setPageCount(pageCount);
+        send(jobId, event);
+    }
+
+    public void publishPage(UUID jobId, int pageIndex, int pageCount, OcrTextDTO page) {
+        OcrJobEventDTO event = new OcrJobEventDTO();
+        event.setJobId(jobId);
+        event.setType(OcrJobEventDTO.Type.PAGE);
+        event.setStatus(OcrJobStatus.RUNNING);
+        event.setPageIndex(pageIndex);
+        event.setPageCount(pageCount);
+        event.setText(page.getText());
+        event.setConfidence(page.getConfidence());
+        send(jobId, event);
+    }
+
+    private void send(UUID jobId, OcrJobEventDTO event) {
+        try {
+            messagingTemplate.convertAndSend(JOB_TOPIC + jobId, event);
+        } catch (MessagingException e) {
+            // Progress is best effort, the persisted job state stays authoritative
+            log.warn("Could not publish progress of OCR job {}", jobId, e);
+        }
+    }
+}
@@ -0,0 +1,155 @@
+package com.cnesten.medarrivalbackend.OCR.services;
+
+import com.cnesten.medarrivalbackend.OCR.Config.OcrProperties;
+import com.cnesten.medarrivalbackend.OCR.Models.OcrResult;
+import com.cnesten.medarrivalbackend.OCR.Repositories.OcrResultRepository;
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.dao.DataAccessException;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+
+import java.nio.charset.StandardCharsets;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.HexFormat;
+import java.util.List;
+import java.util.Optional;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Postgres-backed second tier of the OCR caches. Entries are addressed by the SHA-256 of
+ * the cache key (itself derived from the file content, language and strategy), so
+ * results survive restarts and redeploys. The store is trimmed to the configured size
+ * by evicting the least recently accessed entries.
+ */
+@Slf4j
+@Service
+@RequiredArgsConstructor
+public class OcrResultStore {
+    private static final int EVICTION_BATCH = 500;
+
+    private final OcrResultRepository ocrResultRepository;
+    private final OcrProperties ocrProperties;
+    private final ObjectMapper objectMapper;
+
+    // Ids served by the in-memory tier since the last flush, so hot entries are not evicted here
+    private final Set<String> recentlyAccessed = ConcurrentHashMap.newKeySet();
+
+    // The type is fixed by the cache, never taken from the row: an entry of any other type is a miss
+    public <T> Optional<T> load(String cacheName, Object key, Class<T> type) {
+        String id = id(cacheName, key);
+        try {
+            Optional<OcrResult> result = ocrResultRepository.findById(id);
+            if (result.isEmpty()) {
+                return Optional.empty();
+            }
+
+            OcrResult entry = result.get();
+            if (!type.getName().equals(entry.getPayloadType())) {
+                log.warn("Ignoring OCR result {} of type {}, {} expected", id, entry.getPayloadType(), type.getName());
+                return Optional.empty();
+            }
+            recentlyAccessed.add(id);
+            return Optional.of(objectMapper.readValue(entry.getPayload(), type));
+        } catch (DataAccessException | JsonProcessingException e) {
+            log.warn("Could not load OCR result {} from the store", id, e);
+            return Optional.empty();
+        }
+    }
+
+    public void save(String cacheName, Object key, Object value) {
+        String id = id(cacheName, key);
+        try {
+            String payload = objectMapper.writeValueAsString(value);
+            LocalDateTime now = LocalDateTime.now();
+
+            OcrResult entry = new OcrResult();
+            entry.setId(id);
+            entry.setCacheName(cacheName);
+            entry.setPayloadType(value.getClass().getName());
+            entry.setPayload(payload);
+            entry.setSizeBytes((long) payload.length() * Character.BYTES);
+            entry.setCreatedAt(now);
+            entry.setLastAccessedAt(now);
+            ocrResultRepository.save(entry);
+        } catch (DataAccessException | JsonProcessingException e) {
+            // Concurrent writers of the same content race harmlessly, the value is identical
+            log.debug("Could not save OCR result {} to the store", id, e);
+        }
+    }
+
+    public void markAccessed(String cacheName, Object key) {
+        recentlyAccessed.add(id(cacheName, key));
+    }
+
+    public void evict(String cacheName, Object key) {
+        ocrResultRepository.deleteById(id(cacheName, key));
+    }
+
+    public void clear(String cacheName) {
+        ocrResultRepository.deleteByCacheName(cacheName);
+    }
+
+    public void clearAll() {
+        ocrResultRepository.deleteAllInBatch();
+        recentlyAccessed.clear();
+    }
+
+    @Scheduled(fixedDelayString = "${ocr.store.eviction-interval:10m}")
+    public void evictLeastRecentlyUsed() {
+        flushAccesses();
+
+        OcrProperties.Store config = ocrProperties.getStore();
+        long maxBytes = config.getMaxSize().toBytes();
+        long excessEntries = ocrResultRepository.count() - config.getMaxEntries();
+        long excessBytes = ocrResultRepository.sumSizeBytes() - maxBytes;
+
+        int evicted = 0;
+        while (excessEntries > 0 || excessBytes > 0) {
+            List<String> ids = ocrResultRepository.findLeastRecentlyAccessedIds(PageRequest.of(0, EVICTION_BATCH));
+            if (ids.isEmpty()) {
+                break;
+            }
+
+            excessBytes -= ocrResultRepository.sumSizeBytes(ids);
+            excessEntries -= ids.size();
+            ocrResultRepository.deleteByIds(ids);
+            evicted += ids.size();
+        }
+
+        if (evicted > 0) {
+            log.info("Evicted {} entries from the OCR result store", evicted);
+        }
+    }
+
+    private void flushAccesses() {
+        if (recentlyAccessed.isEmpty()) {
+            return;
+        }
+
+        List<String> ids = new ArrayList<>(recentlyAccessed);
+        recentlyAccessed.removeAll(ids);
+
+        LocalDateTime now = LocalDateTime.now();
+        for (int from = 0; from < ids.size(); from += EVICTION_BATCH) {
+            ocrResultRepository.touch(ids.subList(from, Math.min(from + EVICTION_BATCH, ids.size())), now);
+        }
+    }
+
+    private String id(String cacheName, Object key) {
+        try {
+            MessageDigest digest = MessageDigest.getInstance("SHA-256");
+            byte[] hash = digest.digest(key.toString().getBytes(StandardCharsets.UTF_8));
+            return cacheName + ":" + HexFormat.of().formatHex(hash);
+        } catch (NoSuchAlgorithmException e) {
+            throw new IllegalStateException(e);
+        }
+    }
+}
@@ -1,81 +1,174 @@
 package com.cnesten.medarrivalbackend.OCR.services;
 
-import jakarta.annotation.PostConstruct;
+import com.cnesten.medarrivalbackend.Exceptions.OcrEngineUnavailableException;
+import com.cnesten.medarrivalbackend.Exceptions.OcrFailedException;
+import com.cnesten.medarrivalbackend.Exceptions.OcrTimeoutException;
+import com.cnesten.medarrivalbackend.OCR.Config.OcrProperties;
+import com.cnesten.medarrivalbackend.OCR.DTO.OcrTextDTO;
+import com.cnesten.medarrivalbackend.OCR.Enums.Language;
+import com.cnesten.medarrivalbackend.OCR.Enums.OcrProfile;
+import com.cnesten.medarrivalbackend.OCR.services.Engine.RecognizedText;
+import com.cnesten.medarrivalbackend.OCR.services.Engine.TesseractPool;
+import com.cnesten.medarrivalbackend.OCR.services.Preprocessing.BinarizationEngine;
+import com.cnesten.medarrivalbackend.OCR.services.Preprocessing.ImageIntake;
+import com.cnesten.medarrivalbackend.Utils.ContentHashed;
+import io.micrometer.core.instrument.Tags;
 import lombok.RequiredArgsConstructor;
-import net.sourceforge.tess4j.ITessAPI;
-import net.sourceforge.tess4j.ITesseract;
-import net.sourceforge.tess4j.Tesseract;
 import net.sourceforge.tess4j.TesseractException;
-import org.springframework.beans.factory.annotation.Autowired;
-import org.springframework.beans.factory.annotation.Value;
 import org.springframework.cache.annotation.Cacheable;
 import org.springframework.stereotype.Service;
 import org.springframework.web.multipart.MultipartFile;
 
-import javax.imageio.ImageIO;
 import java.awt.image.BufferedImage;
-import java.io.ByteArrayInputStream;
 import java.io.IOException;
-import java.util.Arrays;
+import java.io.InputStream;
+import java.time.Duration;
 
 @Service
 @RequiredArgsConstructor
 public class OcrService {
 
-    @Value("${ocr.var.path}")
-    String PATH;
-
     private final LanguageDetectionService languageDetectionService;
+    private final LanguageProbeService languageProbeService;
+    private final TesseractPool tesseractPool;
+    private final BinarizationEngine binarizationEngine;
+    private final ImageIntake imageIntake;
+    private final OcrProperties ocrProperties;
+    private final OcrMetrics ocrMetrics;
 
-    private ITesseract tesseract;
+    @Cacheable(cacheNames = "ocrCache",
+            keyGenerator = "customKeyGenerator",
+            sync = true)
+    public OcrTextDTO recognize(MultipartFile imageFile, String language, OcrProfile profile) throws IOException {
+        try {
+            long decodeStart = System.nanoTime();
+            // Already scaled down to what OCR needs, see ImageIntake
+            ImageIntake.IntakeImage intakeImage;
+            try (InputStream inputStream = imageFile.getInputStream()) {
+                intakeImage = imageIntake.read(inputStream);
+            }
+            if (intakeImage == null) {
+                throw new IOException("Unreadable image");
+            }
+            BufferedImage bufferedImage = intakeImage.image();
+            long decodeNanos = System.nanoTime() - decodeStart;
 
-    @PostConstruct
-    public void init() {
-        tesseract = new Tesseract();
-        tesseract.setDatapath(PATH);
-        tesseract.setPageSegMode(ITessAPI.TessPageSegMode.PSM_AUTO_ONLY);
-        tesseract.setOcrEngineMode(ITessAPI.TessOcrEngineMode.OEM_LSTM_ONLY);
-        //tesseract.setTessVariable("user_defined_dpi", "300");
+            Language ocrLanguage = languageDetectionService.isAuto(language)
+                    ? languageProbeService.probeImage(bufferedImage, contentHash(imageFile))
+                    : resolveLanguage(language);
+
+            OcrProfile ocrProfile = ocrProperties.profileFor(profile, null);
+            Tags tags = OcrMetrics.tags(ocrLanguage.label, OcrMetrics.NO_STRATEGY, ocrProfile, OcrMetrics.UPLOAD);
+            ocrMetrics.recordStageNanos(OcrMetrics.DECODE, decodeNanos, tags);
+            OcrTextDTO result = runOcr(bufferedImage, ocrLanguage, ocrProfile);
+
+            // An upload has no higher resolution to go back to, only the engine settings can improve
+            if (needsRetry(result, ocrProfile)) {
+                ocrMetrics.countRetry(tags);
+                result = preferConfident(result, runOcr(bufferedImage, ocrLanguage, retryProfile()));
+            }
+            return result;
+        } catch (OcrTimeoutException | OcrEngineUnavailableException | IllegalArgumentException e) {
+            // Not OCR results, must not be cached: the caller decides what a timed-out or refused page becomes
+            throw e;
+        } catch (IOException | TesseractException | RuntimeException e) {
+            throw new OcrFailedException("Error performing OCR", e);
+        }
     }
 
+    // Entry point for rendered pages: the raster is binarized straight from its data buffer and
+    // handed to Tesseract without any encode/decode round-trip. Retries are left to the caller,
+    // which may be able to render the page again at a higher resolution.
     @Cacheable(cacheNames = "ocrCache",
             keyGenerator = "customKeyGenerator",
-            unless = "#result == null")
-    public String performOCR(MultipartFile imageFile, String language) throws IOException {
+            sync = true)
+    public OcrTextDTO recognize(BufferedImage image, String language, OcrProfile profile) {
         try {
-            byte[] bytes = imageFile.getBytes();
-            BufferedImage bufferedImage = ImageIO.read(new ByteArrayInputStream(bytes));
+            // PDF pages arrive with the document language already probed, only stray callers probe here
+            Language ocrLanguage = languageDetectionService.isAuto(language)
+                    ? languageProbeService.probeImage(image, null)
+                    : resolveLanguage(language);
 
-            BufferedImage binarizedImage = binarizeImage(bufferedImage);
+            return runOcr(image, ocrLanguage, ocrProperties.profileFor(profile, null));
+        } catch (OcrTimeoutException | OcrEngineUnavailableException | IllegalArgumentException e) {
+            throw e;
+        } catch (TesseractException | RuntimeException e) {
+            throw new OcrFailedException("Error performing OCR", e);
+        }
+    }
+
+    public boolean isLowConfidence(OcrTextDTO result) {
+        return result.getConfidence() != null
+                && result.getConfidence() < ocrProperties.getConfidence().getMinPageConfidence();
+    }
 
-            tesseract.setLanguage(languageDetectionService.getLanguageFromRequest(language));
+    public boolean needsRetry(OcrTextDTO result, OcrProfile profile) {
+        return isLowConfidence(result) && profile != retryProfile();
+    }
+
+    public OcrProfile retryProfile() {
+        return ocrProperties.getConfidence().getRetryProfile();
+    }
 
-            return tesseract.doOCR(binarizedImage);
-        } catch (IOException | TesseractException e) {
-            e.printStackTrace();
-            return "Error performing OCR";
+    // The retry only wins when Tesseract is actually more confident about it
+    public OcrTextDTO preferConfident(OcrTextDTO first, OcrTextDTO retry) {
+        if (retry.getConfidence() == null
+                || (first.getConfidence() != null && retry.getConfidence() <= first.getConfidence())) {
+            return first;
+        }
+        retry.setReprocessed(true);
+        return retry;
+    }
+
+    // Only an unknown language is the caller's fault, every other failure is an OCR failure
+    private Language resolveLanguage(String language) {
+        try {
+            return languageDetectionService.resolveLanguage(language);
         } catch (Exception e) {
-            e.printStackTrace();
-            return "Unsupported Language";
+            throw new IllegalArgumentException("Unsupported Language", e);
+        }
+    }
+
+    private static String contentHash(MultipartFile file) throws IOException {
+        return file instanceof ContentHashed hashed ? hashed.getContentHash() : null;
+    }
+
+    // Word boxes are in pixels of the given image, binarization keeps its size. Not cached, layout
+    // callers cache the assembled document instead.
+    public RecognizedText recognizeWords(BufferedImage image, Language language, OcrProfile profile) throws TesseractException {
+        Duration pageTimeout = ocrProperties.getDeadlines().getPage();
+        if (OcrDeadline.remainingMillis(pageTimeout) <= 0) {
+            throw new OcrTimeoutException("OCR deadline exceeded");
+        }
+        Tags tags = OcrMetrics.tags(language.label, OcrMetrics.NO_STRATEGY, profile, OcrMetrics.IMAGE_PAGE);
+
+        long binarizeStart = System.nanoTime();
+        BufferedImage binarizedImage = binarizationEngine.binarize(image, ocrProperties.binarizationFor(profile));
+        ocrMetrics.recordStage(OcrMetrics.BINARIZE, binarizeStart, tags);
+
+        // Includes the wait for a free engine, ocr.pool.wait tells the two apart
+        long recognizeStart = System.nanoTime();
+        try {
+            return tesseractPool.execute(language, profile, engine -> {
+                // Measured once the engine is borrowed, the wait for it already counts against the page
+                long timeoutMillis = OcrDeadline.remainingMillis(pageTimeout);
+                if (timeoutMillis <= 0) {
+                    throw new OcrTimeoutException("OCR deadline exceeded");
+                }
+                return engine.recognize(binarizedImage, timeoutMillis);
+            });
+        } catch (OcrTimeoutException e) {
+            // Tesseract itself gave up, the engine is back in the pool
+            ocrMetrics.countTimeout("engine");
+            throw e;
+        } finally {
+            ocrMetrics.recordStage(OcrMetrics.RECOGNIZE, recognizeStart, tags);
         }
     }
 
-    private BufferedImage binarizeImage(BufferedImage inputImage) {
-        int width = inputImage.getWidth();
-        int height = inputImage.getHeight();
-        int[] pixels = inputImage.getRGB(0, 0, width, height, null, 0, width);
-
-        pixels = Arrays.stream(pixels).parallel().map(rgb -> {
-            int red = (rgb >> 16) & 0xFF;
-            int green = (rgb >> 8) & 0xFF;
-            int blue = rgb & 0xFF;
-            int gray = (int) (0.2126 * red + 0.7152 * green + 0.0722 * blue); // Convert to grayscale
-            return (gray < 128) ? 0xFF000000 : 0xFFFFFFFF; // Apply binary thresholding
-        }).toArray();
-
-        BufferedImage binarizedImage = new BufferedImage(width, height, BufferedImage.TYPE_BYTE_BINARY);
-        binarizedImage.setRGB(0, 0, width, height, pixels, 0, width);
-        return binarizedImage;
+    private OcrTextDTO runOcr(BufferedImage image, Language language, OcrProfile profile) throws TesseractException {
+        RecognizedText recognizedText = recognizeWords(image, language, profile);
+        return new OcrTextDTO(recognizedText.text(), recognizedText.confidence(), profile, false);
     }
 
 //    private static BufferedImage applyGaussianBlur(BufferedImage image, float sigma) {
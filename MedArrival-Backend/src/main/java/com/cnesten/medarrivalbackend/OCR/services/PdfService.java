@@ -1,152 +1,350 @@
 package com.cnesten.medarrivalbackend.OCR.services;
 
+import com.cnesten.medarrivalbackend.Exceptions.OcrFailedException;
+import com.cnesten.medarrivalbackend.Exceptions.OcrTimeoutException;
+import com.cnesten.medarrivalbackend.OCR.Config.OcrProperties;
+import com.cnesten.medarrivalbackend.OCR.DTO.OcrTextDTO;
+import com.cnesten.medarrivalbackend.OCR.Enums.OcrProfile;
 import com.cnesten.medarrivalbackend.OCR.Enums.PdfExtractionStrategy;
-import com.cnesten.medarrivalbackend.Utils.ByteArrayMultipartFile;
+import com.cnesten.medarrivalbackend.Utils.ContentHashed;
+import io.micrometer.core.instrument.Tags;
 import lombok.RequiredArgsConstructor;
-import org.apache.commons.compress.utils.IOUtils;
-import org.apache.commons.lang3.StringEscapeUtils;
-import org.apache.pdfbox.Loader;
+import lombok.extern.slf4j.Slf4j;
 import org.apache.pdfbox.pdmodel.PDDocument;
+import org.apache.pdfbox.rendering.ImageType;
 import org.apache.pdfbox.rendering.PDFRenderer;
 import org.apache.pdfbox.text.PDFTextStripper;
 import org.springframework.cache.annotation.Cacheable;
-import org.springframework.scheduling.annotation.Async;
 import org.springframework.stereotype.Service;
 
-import org.springframework.web.multipart.MultipartFile;
-
-import javax.imageio.ImageIO;
 import java.awt.image.BufferedImage;
-import java.io.ByteArrayOutputStream;
 import java.io.IOException;
 import java.io.InputStream;
+import java.io.UncheckedIOException;
+import java.nio.file.Path;
 import java.util.ArrayList;
 import java.util.List;
 import java.util.concurrent.CompletableFuture;
 import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Executor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import java.util.concurrent.atomic.AtomicBoolean;
 
+@Slf4j
 @Service
 @RequiredArgsConstructor
 public class PdfService {
+    // Stands in for a page abandoned past its deadline, results containing it are never cached
+    private static final String TIMEOUT_MARKER = "[OCR timed out on page ";
+    private static final long QUEUED_POLL_NANOS = TimeUnit.MILLISECONDS.toNanos(100);
+
     private final OcrService ocrService;
-    private final ImageDetectionEngineService imageDetector;
+    private final TextQualityAnalyzer textQualityAnalyzer;
     private final LanguageDetectionService languageDetectionService;
+    private final LanguageProbeService languageProbeService;
+    private final OcrProperties ocrProperties;
+    private final FairPageScheduler fairPageScheduler;
+    private final DocumentSpool documentSpool;
+    private final OcrMetrics ocrMetrics;
 
     @Cacheable(cacheNames = "pdfCache",
             keyGenerator = "customKeyGenerator",
-            unless = "#result == null")
-    public String extractTextFromPdf(InputStream pdfInputStream, PdfExtractionStrategy strategy, String language) throws IOException {
+            condition = "@customKeyGenerator.isContentAddressable(#root.args)",
+            sync = true)
+    public String extractTextFromPdf(InputStream pdfInputStream, PdfExtractionStrategy strategy, String language, OcrProfile profile) throws IOException {
+        return extractTextFromPdf(pdfInputStream, strategy, language, profile, OcrPageListener.NONE);
+    }
+
+    // Not cached: used by callers that need per-page progress
+    public String extractTextFromPdf(InputStream pdfInputStream, PdfExtractionStrategy strategy, String language, OcrProfile profile, OcrPageListener listener) throws IOException {
         String output = "";
+        OcrProfile ocrProfile = ocrProperties.profileFor(profile, strategy);
 
         if (PdfExtractionStrategy.ADAPTIVE.equals(strategy))
-            output = adaptiveExtract(pdfInputStream,language);
+            output = extractPages(pdfInputStream, language, ocrProfile, strategy, listener);
 
         if (PdfExtractionStrategy.NORMAL_EXTRACTION.equals(strategy))
-            output = adaptiveExtract(pdfInputStream,language);
+            output = extractPages(pdfInputStream, language, ocrProfile, strategy, listener);
 
         if (PdfExtractionStrategy.TRANSFORM_TO_IMAGE.equals(strategy))
-            output = extractTextFromPdfWithImageTransform(pdfInputStream,language);
+            output = extractPages(pdfInputStream, language, ocrProfile, strategy, listener);
 
         return output;
     }
 
     @Cacheable(cacheNames = "pdfCache",
             keyGenerator = "customKeyGenerator",
-            unless = "#result == null")
-    public String adaptiveExtract(InputStream pdfInputStream, String language) {
-        StringBuilder pdfTextBuilder = new StringBuilder();
+            condition = "@customKeyGenerator.isContentAddressable(#root.args)",
+            sync = true)
+    public String adaptiveExtract(InputStream pdfInputStream, String language, OcrProfile profile) {
+        return extractPages(pdfInputStream, language, ocrProperties.profileFor(profile, PdfExtractionStrategy.ADAPTIVE),
+                PdfExtractionStrategy.ADAPTIVE, OcrPageListener.NONE);
+    }
+
+    public static boolean isPartial(String text) {
+        return text != null && text.contains(TIMEOUT_MARKER);
+    }
+
+    // Every page runs as its own task on the OCR executor and opens its own view of the
+    // document: PDDocument, PDFTextStripper and PDFRenderer are not safe to share. Pages go
+    // through the document's own lane so concurrent documents take turns on the executor.
+    // Uploads come spooled by FileProcessingService and each page opens that file, never a heap copy.
+    private String extractPages(InputStream pdfInputStream, String language, OcrProfile profile, PdfExtractionStrategy strategy, OcrPageListener listener) {
         List<CompletableFuture<String>> futures = new ArrayList<>();
+        long documentDeadline = System.nanoTime() + ocrProperties.getDeadlines().getDocument().toNanos();
+        long pageTimeout = ocrProperties.getDeadlines().getPage().toNanos();
+        Path pdfFile = null;
 
-        try (PDDocument document = Loader.loadPDF(IOUtils.toByteArray(pdfInputStream))) {
-            PDFTextStripper pdfStripper = new PDFTextStripper();
-            PDFRenderer pdfRenderer = new PDFRenderer(document);
+        try {
+            pdfFile = documentSpool.spool(pdfInputStream);
+            Path documentFile = pdfFile;
 
-            for (int pageIndex = 0; pageIndex < document.getNumberOfPages(); pageIndex++) {
-                futures.add(processPageAsync(document, pdfRenderer, pdfStripper, pageIndex, language));
+            int pageCount;
+            try (PDDocument document = documentSpool.loadPdf(pdfFile)) {
+                pageCount = document.getNumberOfPages();
             }
+            listener.onDocumentStarted(pageCount);
+
+            // "auto" is resolved once per document, every page then runs with the same pack
+            String documentLanguage = languageDetectionService.isAuto(language)
+                    ? languageProbeService.probePdf(pdfFile, contentHash(pdfInputStream)).label
+                    : language;
 
-            for (CompletableFuture<String> future : futures) {
-                pdfTextBuilder.append(future.get());
+            PageRun[] runs = new PageRun[pageCount];
+            Executor documentLane = fairPageScheduler.newLane();
+            for (int pageIndex = 0; pageIndex < pageCount; pageIndex++) {
+                int page = pageIndex;
+                PageRun run = runs[page] = new PageRun();
+                futures.add(CompletableFuture.supplyAsync(
+                        () -> {
+                            // The page clock starts when the page leaves the queue
+                            run.startedAt = System.nanoTime();
+                            long pageDeadline = Math.min(documentDeadline, run.startedAt + pageTimeout);
+                            OcrTextDTO pageText = OcrDeadline.within(pageDeadline,
+                                    () -> processPage(documentFile, page, documentLanguage, profile, strategy));
+                            if (run.report()) {
+                                notifyPageCompleted(listener, page, pageCount, pageText);
+                            }
+                            return pageText.getText();
+                        }, documentLane));
+            }
+
+            StringBuilder pdfTextBuilder = new StringBuilder();
+            for (int pageIndex = 0; pageIndex < pageCount; pageIndex++) {
+                pdfTextBuilder.append(awaitPage(futures.get(pageIndex), runs[pageIndex], pageIndex, pageCount,
+                        documentDeadline, pageTimeout, listener));
             }
 
             return pdfTextBuilder.toString();
-        } catch (IOException | InterruptedException | ExecutionException e) {
-            e.printStackTrace();
-            return "Error extracting text from PDF";
+        } catch (ExecutionException e) {
+            // A failed document has no text: an error message returned in its place would be cached as its content
+            futures.forEach(future -> future.cancel(false));
+            if (e.getCause() instanceof RuntimeException failure && !(failure instanceof UncheckedIOException)) {
+                throw failure;
+            }
+            throw new OcrFailedException("Error extracting text from PDF", e.getCause());
+        } catch (IOException e) {
+            futures.forEach(future -> future.cancel(false));
+            throw new OcrFailedException("Error extracting text from PDF", e);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            futures.forEach(future -> future.cancel(false));
+            throw new OcrFailedException("Error extracting text from PDF", e);
+        } finally {
+            if (pdfFile != null) {
+                documentSpool.release(pdfInputStream, pdfFile);
+            }
         }
     }
 
-    @Async
-    public CompletableFuture<String> processPageAsync(PDDocument document, PDFRenderer pdfRenderer, PDFTextStripper pdfStripper, int pageIndex, String language) {
+    // Waits for a page within its own deadline and the document's. A page past either is
+    // abandoned, Tesseract gives up on it at the same deadline, and a marker takes its place
+    // so the other pages are still returned.
+    private String awaitPage(CompletableFuture<String> future, PageRun run, int pageIndex, int pageCount,
+                             long documentDeadline, long pageTimeout, OcrPageListener listener)
+            throws ExecutionException, InterruptedException {
+        while (true) {
+            long startedAt = run.startedAt;
+            boolean started = startedAt != PageRun.QUEUED;
+            long deadline = started ? Math.min(documentDeadline, startedAt + pageTimeout) : documentDeadline;
+            long remaining = deadline - System.nanoTime();
+
+            try {
+                if (future.isDone() || remaining > 0) {
+                    // A queued page is looked at again once it may have started its own clock
+                    long wait = started ? remaining : Math.min(remaining, QUEUED_POLL_NANOS);
+                    return future.get(Math.max(0, wait), TimeUnit.NANOSECONDS);
+                }
+            } catch (TimeoutException e) {
+                continue;
+            } catch (ExecutionException e) {
+                if (!(e.getCause() instanceof OcrTimeoutException)) {
+                    throw e;
+                }
+            }
+
+            String scope = documentDeadline - System.nanoTime() <= 0 ? "document" : "page";
+            if (future.cancel(false)) {
+                // Engine-side timeouts are already counted by OcrService
+                ocrMetrics.countTimeout(scope);
+            }
+            log.warn("OCR of page {}/{} abandoned past its {} deadline", pageIndex + 1, pageCount, scope);
+
+            String marker = TIMEOUT_MARKER + (pageIndex + 1) + "]" + System.lineSeparator();
+            if (run.report()) {
+                notifyPageCompleted(listener, pageIndex, pageCount, OcrTextDTO.of(marker));
+            }
+            return marker;
+        }
+    }
+
+    private static String contentHash(InputStream pdfInputStream) throws IOException {
+        return pdfInputStream instanceof ContentHashed hashed ? hashed.getContentHash() : null;
+    }
+
+    private void notifyPageCompleted(OcrPageListener listener, int pageIndex, int pageCount, OcrTextDTO pageText) {
         try {
-            imageDetector.resetImageFoundFlag();
+            listener.onPageCompleted(pageIndex, pageCount, pageText);
+        } catch (RuntimeException e) {
+            log.warn("Page listener failed for page {}", pageIndex, e);
+        }
+    }
+
+    // Whichever of the page task and the deadline comes first reports the page
+    private static class PageRun {
+        private static final long QUEUED = Long.MIN_VALUE;
+
+        private volatile long startedAt = QUEUED;
+        private final AtomicBoolean reported = new AtomicBoolean();
+
+        boolean report() {
+            return reported.compareAndSet(false, true);
+        }
+    }
+
+    // Only TRANSFORM_TO_IMAGE skips the text layer, NORMAL_EXTRACTION and ADAPTIVE both fall back to OCR per page
+    private OcrTextDTO processPage(Path pdfFile, int pageIndex, String language, OcrProfile profile, PdfExtractionStrategy strategy) {
+        long pageStart = System.nanoTime();
+        String languageTag = languageTag(language);
+        String strategyTag = strategy.name().toLowerCase();
+        boolean forceOcr = PdfExtractionStrategy.TRANSFORM_TO_IMAGE.equals(strategy);
+
+        try (PDDocument document = documentSpool.loadPdf(pdfFile)) {
+            long loadNanos = System.nanoTime() - pageStart;
+            PDFRenderer pdfRenderer = new PDFRenderer(document);
+
+            if (forceOcr) {
+                Tags tags = OcrMetrics.tags(languageTag, strategyTag, profile, OcrMetrics.IMAGE_PAGE);
+                ocrMetrics.recordStageNanos(OcrMetrics.LOAD, loadNanos, tags);
+                OcrTextDTO result = getImageTextWithOCR(pdfRenderer, pageIndex, language, profile, tags);
+                ocrMetrics.recordPage(pageStart, tags);
+                return result;
+            }
+
+            long detectionStart = System.nanoTime();
+            ImageDetectionEngineService imageDetector = new ImageDetectionEngineService();
             imageDetector.processPage(document.getPage(pageIndex));
-            String resultantString;
+            long detectionNanos = System.nanoTime() - detectionStart;
 
+            long stripStart = System.nanoTime();
+            PDFTextStripper pdfStripper = new PDFTextStripper();
             pdfStripper.setStartPage(pageIndex + 1);
             pdfStripper.setEndPage(pageIndex + 1);
 
-            resultantString = pdfStripper.getText(document);
+            String resultantString = pdfStripper.getText(document);
+            long stripNanos = System.nanoTime() - stripStart;
 
-            StringEscapeUtils.escapeJava(resultantString);
+            TextQualityAnalyzer.TextQuality textQuality = textQualityAnalyzer.analyze(resultantString);
+            boolean fallbackToOcr = textQuality.isProbablyMalExtracted() || textQuality.isEmpty();
 
-            boolean isMalExtracted = languageDetectionService.isProbablyMalExtracted(resultantString);
-            boolean isPdfEmpty = resultantString.replaceAll("[\\n\\t\\\\s\\r]", "").isEmpty();
-            boolean isImageFound = imageDetector.isImageFound();
+            Tags tags = OcrMetrics.tags(languageTag, strategyTag, profile, fallbackToOcr ? OcrMetrics.IMAGE_PAGE : OcrMetrics.TEXT_PAGE);
+            ocrMetrics.recordStageNanos(OcrMetrics.LOAD, loadNanos, tags);
+            ocrMetrics.recordStageNanos(OcrMetrics.IMAGE_DETECTION, detectionNanos, tags);
+            ocrMetrics.recordStageNanos(OcrMetrics.TEXT_STRIP, stripNanos, tags);
 
-            if (isMalExtracted || isPdfEmpty || isImageFound) {
-                resultantString = getImageTextWithOCR(pdfRenderer, pageIndex, language);
+            // No usable text layer: scanned page or broken font encoding, recognize the whole page
+            if (fallbackToOcr) {
+                ocrMetrics.countFallback(textQuality.isEmpty() ? "empty_text" : "malformed_text", languageTag);
+                OcrTextDTO result = getImageTextWithOCR(pdfRenderer, pageIndex, language, profile, tags);
+                ocrMetrics.recordPage(pageStart, tags);
+                return result;
             }
 
-            return CompletableFuture.completedFuture(resultantString);
+            // Valid text layer: keep it and only OCR embedded images big enough to carry text,
+            // decorative logos and stamps never reach Tesseract. The page reports the confidence
+            // of its weakest recognized image.
+            StringBuilder pageText = new StringBuilder(resultantString);
+            OcrTextDTO weakest = null;
+            for (ImageDetectionEngineService.DetectedImage detectedImage : imageDetector.getImages()) {
+                if (isTextBearing(detectedImage)) {
+                    OcrTextDTO imageText = getEmbeddedImageTextWithOCR(detectedImage, language, profile, tags);
+                    pageText.append(System.lineSeparator()).append(imageText.getText());
+                    if (imageText.getConfidence() != null
+                            && (weakest == null || imageText.getConfidence() < weakest.getConfidence())) {
+                        weakest = imageText;
+                    }
+                }
+            }
+
+            ocrMetrics.recordPage(pageStart, tags);
+            return weakest == null
+                    ? OcrTextDTO.of(pageText.toString())
+                    : new OcrTextDTO(pageText.toString(), weakest.getConfidence(), weakest.getProfile(), weakest.isReprocessed());
         } catch (IOException e) {
-            throw new RuntimeException(e);
+            throw new UncheckedIOException(e);
         }
     }
 
-    private String extractTextFromPdfWithImageTransform(InputStream pdfInputStream,String language) {
-        StringBuilder allPagesText = new StringBuilder();
-
-        try (PDDocument document = Loader.loadPDF(IOUtils.toByteArray(pdfInputStream))) {
-            PDFRenderer pdfRenderer = new PDFRenderer(document);
+    // Requested spellings vary ("fr", "french", "fra"), the tag is the pack the page runs with
+    private String languageTag(String language) {
+        try {
+            return languageDetectionService.resolveLanguage(language).label;
+        } catch (Exception e) {
+            return "other";
+        }
+    }
 
-            for (int page = 0; page < document.getNumberOfPages(); ++page) {
-                allPagesText.append(getImageTextWithOCR(pdfRenderer, page,language));
-            }
+    private boolean isTextBearing(ImageDetectionEngineService.DetectedImage detectedImage) {
+        OcrProperties.Pdf config = ocrProperties.getPdf();
 
-            return allPagesText.toString();
-        } catch (IOException e) {
-            e.printStackTrace();
-            return "Error extracting text from PDF";
+        // A page-sized image under a valid text layer is a searchable scan, its text is already extracted
+        if (detectedImage.pageCoverage() >= config.getBackgroundImageCoverage()) {
+            return false;
         }
+        return detectedImage.pixelWidth() >= config.getMinImageWidth()
+                && detectedImage.pixelHeight() >= config.getMinImageHeight();
     }
 
-    private String getImageTextWithOCR(PDFRenderer pdfRenderer, int pageIndex, String language) throws IOException {
-        String resultantString = "";
+    private OcrTextDTO getImageTextWithOCR(PDFRenderer pdfRenderer, int pageIndex, String language, OcrProfile profile, Tags tags) throws IOException {
+        // Rendered straight to 8-bit gray at the profile DPI, the OCR cache key is the digest of this raster
+        int dpi = ocrProperties.profile(profile).getDpi();
+        long renderStart = System.nanoTime();
+        BufferedImage image = pdfRenderer.renderImageWithDPI(pageIndex, dpi, ImageType.GRAY);
+        ocrMetrics.recordStage(OcrMetrics.RENDER, renderStart, tags);
+        OcrTextDTO result = ocrService.recognize(image, language, profile);
 
-        BufferedImage image = pdfRenderer.renderImageWithDPI(pageIndex, 150);
-
-        ByteArrayOutputStream baos = new ByteArrayOutputStream();
-        try {
-            ImageIO.write(image, "png", baos);
-            byte[] imageInByte = baos.toByteArray();
-            baos.close();
-
-            // Create MultipartFile from byte array
-            MultipartFile multipartFile = new ByteArrayMultipartFile(
-                    "PDF.png",           // filename
-                    "PDF.png",           // originalFilename
-                    "image/png",         // contentType
-                    imageInByte          // content
-            );
-
-            resultantString = ocrService.performOCR(multipartFile, languageDetectionService.getLanguageFromRequest(language));
-        } catch (IOException e) {
-            e.printStackTrace();
-        } catch (Exception e) {
-            throw new RuntimeException(e);
+        // Only pages Tesseract is unsure about pay for the high resolution pass
+        int retryDpi = Math.max(dpi, ocrProperties.getConfidence().getRetryDpi());
+        if (ocrService.isLowConfidence(result) && (profile != ocrService.retryProfile() || retryDpi > dpi)) {
+            ocrMetrics.countRetry(tags);
+            renderStart = System.nanoTime();
+            BufferedImage retryImage = pdfRenderer.renderImageWithDPI(pageIndex, retryDpi, ImageType.GRAY);
+            ocrMetrics.recordStage(OcrMetrics.RENDER, renderStart, tags);
+            result = ocrService.preferConfident(result, ocrService.recognize(retryImage, language, ocrService.retryProfile()));
         }
+        return result;
+    }
+
+    private OcrTextDTO getEmbeddedImageTextWithOCR(ImageDetectionEngineService.DetectedImage detectedImage, String language, OcrProfile profile, Tags tags) throws IOException {
+        BufferedImage image = detectedImage.image().getImage();
+        OcrTextDTO result = ocrService.recognize(image, language, profile);
 
-        return resultantString;
+        // Embedded images are already at their native resolution, only the engine settings can improve
+        if (ocrService.needsRetry(result, profile)) {
+            ocrMetrics.countRetry(tags);
+            result = ocrService.preferConfident(result, ocrService.recognize(image, language, ocrService.retryProfile()));
+        }
+        return result;
     }
 }
@@ -0,0 +1,336 @@
+package com.cnesten.medarrivalbackend.OCR.services.Preprocessing;
+
+import com.cnesten.medarrivalbackend.OCR.Config.OcrProperties;
+import com.cnesten.medarrivalbackend.OCR.Enums.BinarizationMethod;
+import lombok.RequiredArgsConstructor;
+import org.springframework.stereotype.Service;
+
+import java.awt.image.BufferedImage;
+import java.awt.image.ComponentColorModel;
+import java.awt.image.ComponentSampleModel;
+import java.awt.image.DataBufferByte;
+import java.awt.image.DataBufferInt;
+import java.awt.image.MultiPixelPackedSampleModel;
+import java.awt.image.SinglePixelPackedSampleModel;
+import java.awt.image.WritableRaster;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveAction;
+import java.util.concurrent.RecursiveTask;
+
+/**
+ * Turns a page image into a packed 1-bit image for Tesseract. Pixels are read straight
+ * from the source data buffer one row at a time and written as bits into the output
+ * buffer, so the only allocations are the output (1/8 of a gray image) and per-band
+ * scratch rows. Work is split into row bands on the common fork-join pool.
+ */
+@Service
+@RequiredArgsConstructor
+public class BinarizationEngine {
+    private static final int MIN_BAND_ROWS = 32;
+    private static final int MAX_BAND_ROWS = 128;
+
+    // Dynamic range of the standard deviation for 8-bit images
+    private static final double SAUVOLA_R = 128.0;
+
+    private final OcrProperties ocrProperties;
+
+    public BufferedImage binarize(BufferedImage image, BinarizationMethod method) {
+        int width = image.getWidth();
+        int height = image.getHeight();
+
+        BufferedImage binary = new BufferedImage(width, height, BufferedImage.TYPE_BYTE_BINARY);
+        WritableRaster binaryRaster = binary.getRaster();
+        byte[] bits = ((DataBufferByte) binaryRaster.getDataBuffer()).getData();
+        int stride = ((MultiPixelPackedSampleModel) binaryRaster.getSampleModel()).getScanlineStride();
+
+        OcrProperties.Preprocessing config = ocrProperties.getPreprocessing();
+        ForkJoinPool pool = ForkJoinPool.commonPool();
+
+        switch (method) {
+            case FIXED -> pool.invoke(new GlobalThresholdTask(image, bits, stride, 0, height, config.getFixedThreshold()));
+            case OTSU -> {
+                int threshold = otsuThreshold(pool.invoke(new HistogramTask(image, 0, height)));
+                pool.invoke(new GlobalThresholdTask(image, bits, stride, 0, height, threshold));
+            }
+            case SAUVOLA -> pool.invoke(new SauvolaTask(image, bits, stride, 0, height,
+                    Math.max(1, config.getSauvolaWindow() / 2), config.getSauvolaK()));
+        }
+
+        return binary;
+    }
+
+    // Returns the first gray level of the bright class, pixels below it are ink
+    static int otsuThreshold(int[] histogram) {
+        long total = 0;
+        long weightedSum = 0;
+        for (int level = 0; level < 256; level++) {
+            total += histogram[level];
+            weightedSum += (long) level * histogram[level];
+        }
+
+        long backgroundWeight = 0;
+        long backgroundSum = 0;
+        double bestVariance = -1;
+        int bestLevel = 127;
+
+        for (int level = 0; level < 256; level++) {
+            backgroundWeight += histogram[level];
+            if (backgroundWeight == 0) continue;
+
+            long foregroundWeight = total - backgroundWeight;
+            if (foregroundWeight == 0) break;
+
+            backgroundSum += (long) level * histogram[level];
+            double backgroundMean = (double) backgroundSum / backgroundWeight;
+            double foregroundMean = (double) (weightedSum - backgroundSum) / foregroundWeight;
+            double meanDifference = backgroundMean - foregroundMean;
+            double variance = (double) backgroundWeight * foregroundWeight * meanDifference * meanDifference;
+
+            if (variance > bestVariance) {
+                bestVariance = variance;
+                bestLevel = level;
+            }
+        }
+
+        return bestLevel + 1;
+    }
+
+    // Luminance (BT.709 weights in 8-bit fixed point) of row y into row[0..width)
+    static void readGrayRow(BufferedImage image, int y, int[] row, int[] rgbScratch) {
+        WritableRaster raster = image.getRaster();
+        int width = image.getWidth();
+        int sampleY = y - raster.getSampleModelTranslateY();
+        int sampleX = -raster.getSampleModelTranslateX();
+
+        if (raster.getDataBuffer() instanceof DataBufferByte byteBuffer
+                && raster.getSampleModel() instanceof ComponentSampleModel sampleModel
+                && image.getColorModel() instanceof ComponentColorModel) {
+            byte[] data = byteBuffer.getData();
+            int offset = byteBuffer.getOffset() + sampleModel.getOffset(sampleX, sampleY);
+            int pixelStride = sampleModel.getPixelStride();
+            int[] bandOffsets = sampleModel.getBandOffsets();
+
+            if (sampleModel.getNumBands() < 3) {
+                int band = bandOffsets[0];
+                for (int x = 0, i = offset + band; x < width; x++, i += pixelStride) {
+                    row[x] = data[i] & 0xFF;
+                }
+                return;
+            }
+
+            int red = bandOffsets[0];
+            int green = bandOffsets[1];
+            int blue = bandOffsets[2];
+            for (int x = 0, i = offset; x < width; x++, i += pixelStride) {
+                row[x] = luminance(data[i + red] & 0xFF, data[i + green] & 0xFF, data[i + blue] & 0xFF);
+            }
+            return;
+        }
+
+        if (raster.getDataBuffer() instanceof DataBufferInt intBuffer
+                && raster.getSampleModel() instanceof SinglePixelPackedSampleModel sampleModel
+                && (image.getType() == BufferedImage.TYPE_INT_RGB || image.getType() == BufferedImage.TYPE_INT_ARGB)) {
+            int[] data = intBuffer.getData();
+            int offset = intBuffer.getOffset() + sampleModel.getOffset(sampleX, sampleY);
+            for (int x = 0; x < width; x++) {
+                int rgb = data[offset + x];
+                row[x] = luminance((rgb >> 16) & 0xFF, (rgb >> 8) & 0xFF, rgb & 0xFF);
+            }
+            return;
+        }
+
+        // Palette and other layouts go through the color model, still one row at a time
+        image.getRGB(0, y, width, 1, rgbScratch, 0, width);
+        for (int x = 0; x < width; x++) {
+            int rgb = rgbScratch[x];
+            row[x] = luminance((rgb >> 16) & 0xFF, (rgb >> 8) & 0xFF, rgb & 0xFF);
+        }
+    }
+
+    private static int luminance(int red, int green, int blue) {
+        return (54 * red + 183 * green + 19 * blue) >> 8;
+    }
+
+    private static void setWhite(byte[] bits, int rowOffset, int x) {
+        bits[rowOffset + (x >> 3)] |= (byte) (0x80 >>> (x & 7));
+    }
+
+    private static int bandRows(int height) {
+        int parallelism = ForkJoinPool.getCommonPoolParallelism();
+        return Math.max(MIN_BAND_ROWS, Math.min(MAX_BAND_ROWS, height / (parallelism * 4) + 1));
+    }
+
+    private static class HistogramTask extends RecursiveTask<int[]> {
+        private final BufferedImage image;
+        private final int fromRow;
+        private final int toRow;
+
+        HistogramTask(BufferedImage image, int fromRow, int toRow) {
+            this.image = image;
+            this.fromRow = fromRow;
+            this.toRow = toRow;
+        }
+
+        @Override
+        protected int[] compute() {
+            if (toRow - fromRow > bandRows(image.getHeight())) {
+                int middle = (fromRow + toRow) >>> 1;
+                HistogramTask top = new HistogramTask(image, fromRow, middle);
+                top.fork();
+                int[] histogram = new HistogramTask(image, middle, toRow).compute();
+                int[] topHistogram = top.join();
+                for (int level = 0; level < 256; level++) {
+                    histogram[level] += topHistogram[level];
+                }
+                return histogram;
+            }
+
+            int width = image.getWidth();
+            int[] histogram = new int[256];
+            int[] row = new int[width];
+            int[] rgbScratch = new int[width];
+            for (int y = fromRow; y < toRow; y++) {
+                readGrayRow(image, y, row, rgbScratch);
+                for (int x = 0; x < width; x++) {
+                    histogram[row[x]]++;
+                }
+            }
+            return histogram;
+        }
+    }
+
+    private static class GlobalThresholdTask extends RecursiveAction {
+        private final BufferedImage image;
+        private final byte[] bits;
+        private final int stride;
+        private final int fromRow;
+        private final int toRow;
+        private final int threshold;
+
+        GlobalThresholdTask(BufferedImage image, byte[] bits, int stride, int fromRow, int toRow, int threshold) {
+            this.image = image;
+            this.bits = bits;
+            this.stride = stride;
+            this.fromRow = fromRow;
+            this.toRow = toRow;
+            this.threshold = threshold;
+        }
+
+        @Override
+        protected void compute() {
+            if (toRow - fromRow > bandRows(image.getHeight())) {
+                int middle = (fromRow + toRow) >>> 1;
+                invokeAll(new GlobalThresholdTask(image, bits, stride, fromRow, middle, threshold),
+                        new GlobalThresholdTask(image, bits, stride, middle, toRow, threshold));
+                return;
+            }
+
+            int width = image.getWidth();
+            int[] row = new int[width];
+            int[] rgbScratch = new int[width];
+            for (int y = fromRow; y < toRow; y++) {
+                readGrayRow(image, y, row, rgbScratch);
+                int rowOffset = y * stride;
+                for (int x = 0; x < width; x++) {
+                    if (row[x] >= threshold) {
+                        setWhite(bits, rowOffset, x);
+                    }
+                }
+            }
+        }
+    }
+
+    /**
+     * Sauvola threshold T = m * (1 + k * (s / R - 1)) over a (2r+1)^2 window. Each band
+     * builds integral images of its rows plus an r-row halo, so memory stays bounded by
+     * the band size rather than the page size.
+     */
+    private static class SauvolaTask extends RecursiveAction {
+        private final BufferedImage image;
+        private final byte[] bits;
+        private final int stride;
+        private final int fromRow;
+        private final int toRow;
+        private final int radius;
+        private final double k;
+
+        SauvolaTask(BufferedImage image, byte[] bits, int stride, int fromRow, int toRow, int radius, double k) {
+            this.image = image;
+            this.bits = bits;
+            this.stride = stride;
+            this.fromRow = fromRow;
+            this.toRow = toRow;
+            this.radius = radius;
+            this.k = k;
+        }
+
+        @Override
+        protected void compute() {
+            if (toRow - fromRow > Math.max(bandRows(image.getHeight()), 4 * radius)) {
+                int middle = (fromRow + toRow) >>> 1;
+                invokeAll(new SauvolaTask(image, bits, stride, fromRow, middle, radius, k),
+                        new SauvolaTask(image, bits, stride, middle, toRow, radius, k));
+                return;
+            }
+
+            int width = image.getWidth();
+            int height = image.getHeight();
+            int haloFrom = Math.max(0, fromRow - radius);
+            int haloTo = Math.min(height, toRow + radius);
+            int columns = width + 1;
+
+            // Integral images over [haloFrom, haloTo), row 0 and column 0 are zero
+            long[] sum = new long[(haloTo - haloFrom + 1) * columns];
+            long[] squares = new long[(haloTo - haloFrom + 1) * columns];
+            int[] row = new int[width];
+            int[] rgbScratch = new int[width];
+
+            for (int y = haloFrom; y < haloTo; y++) {
+                readGrayRow(image, y, row, rgbScratch);
+                int above = (y - haloFrom) * columns;
+                int current = above + columns;
+                long rowSum = 0;
+                long rowSquares = 0;
+                for (int x = 0; x < width; x++) {
+                    int value = row[x];
+                    rowSum += value;
+                    rowSquares += value * value;
+                    sum[current + x + 1] = sum[above + x + 1] + rowSum;
+                    squares[current + x + 1] = squares[above + x + 1] + rowSquares;
+                }
+            }
+
+            for (int y = fromRow; y < toRow; y++) {
+                int top = Math.max(haloFrom, y - radius) - haloFrom;
+                int bottom = Math.min(haloTo - 1, y + radius) - haloFrom + 1;
+                int topOffset = top * columns;
+                int bottomOffset = bottom * columns;
+                int pixelAbove = (y - haloFrom) * columns;
+                int pixelBelow = pixelAbove + columns;
+                int rowOffset = y * stride;
+
+                for (int x = 0; x < width; x++) {
+                    int left = Math.max(0, x - radius);
+                    int right = Math.min(width - 1, x + radius) + 1;
+                    int area = (bottom - top) * (right - left);
+
+                    long windowSum = sum[bottomOffset + right] - sum[topOffset + right]
+                            - sum[bottomOffset + left] + sum[topOffset + left];
+                    long windowSquares = squares[bottomOffset + right] - squares[topOffset + right]
+                            - squares[bottomOffset + left] + squares[topOffset + left];
+
+                    double mean = (double) windowSum / area;
+                    double variance = (double) windowSquares / area - mean * mean;
+                    double deviation = variance > 0 ? Math.sqrt(variance) : 0;
+                    double threshold = mean * (1 + k * (deviation / SAUVOLA_R - 1));
+
+                    long value = sum[pixelBelow + x + 1] - sum[pixelAbove + x + 1]
+                            - sum[pixelBelow + x] + sum[pixelAbove + x];
+                    if (value > threshold) {
+                        setWhite(bits, rowOffset, x);
+                    }
+                }
+            }
+        }
+    }
+}
@@ -0,0 +1,114 @@
+package com.cnesten.medarrivalbackend.OCR.services.Preprocessing;
+
+import com.cnesten.medarrivalbackend.OCR.Config.OcrProperties;
+import lombok.RequiredArgsConstructor;
+import org.springframework.stereotype.Service;
+
+import javax.imageio.ImageIO;
+import javax.imageio.ImageReadParam;
+import javax.imageio.ImageReader;
+import javax.imageio.stream.ImageInputStream;
+import java.awt.Color;
+import java.awt.Graphics2D;
+import java.awt.RenderingHints;
+import java.awt.image.BufferedImage;
+import java.io.IOException;
+import java.io.InputStream;
+import java.util.Iterator;
+
+/**
+ * Decodes uploaded images no larger than OCR needs. The header is read first, the reader then
+ * skips source pixels (subsampling) so the decoded raster stays within
+ * ocr.intake.max-decode-megapixels, and a single bilinear pass brings it down to the target
+ * text resolution in 8-bit gray. A 48 MP phone photo never exists in memory at full size:
+ * peak heap per image is bounded by the decode budget (4 bytes a pixel) plus the gray target.
+ */
+@Service
+@RequiredArgsConstructor
+public class ImageIntake {
+    private final OcrProperties ocrProperties;
+
+    // The image handed to OCR and the size of the upload it came from, to map boxes back
+    public record IntakeImage(BufferedImage image, int sourceWidth, int sourceHeight) {
+        public float scaleToSource() {
+            return (float) sourceWidth / image.getWidth();
+        }
+    }
+
+    // null when no installed reader understands the content, as ImageIO.read
+    public IntakeImage read(InputStream inputStream) throws IOException {
+        try (ImageInputStream imageStream = ImageIO.createImageInputStream(inputStream)) {
+            if (imageStream == null) return null;
+            Iterator<ImageReader> readers = ImageIO.getImageReaders(imageStream);
+            if (!readers.hasNext()) return null;
+
+            ImageReader reader = readers.next();
+            try {
+                reader.setInput(imageStream, true, true);
+                int width = reader.getWidth(0);
+                int height = reader.getHeight(0);
+
+                OcrProperties.Intake config = ocrProperties.getIntake();
+                double scale = targetScale(width, height, config);
+                int subsampling = subsampling(width, height, scale, config);
+
+                ImageReadParam param = reader.getDefaultReadParam();
+                if (subsampling > 1) {
+                    param.setSourceSubsampling(subsampling, subsampling, 0, 0);
+                }
+                BufferedImage decoded = reader.read(0, param);
+
+                // Subsampling alone may already land on the target, the decode budget may even undercut it
+                int targetWidth = Math.min(decoded.getWidth(), Math.max(1, (int) Math.round(width * scale)));
+                int targetHeight = Math.min(decoded.getHeight(), Math.max(1, (int) Math.round(height * scale)));
+                if (targetWidth == decoded.getWidth() && targetHeight == decoded.getHeight()) {
+                    return new IntakeImage(decoded, width, height);
+                }
+                return new IntakeImage(resample(decoded, targetWidth, targetHeight), width, height);
+            } finally {
+                reader.dispose();
+            }
+        }
+    }
+
+    // Long side at the target DPI over a full page, then the megapixel cap; never upscales
+    static double targetScale(int width, int height, OcrProperties.Intake config) {
+        double targetLongSide = config.getTargetDpi() * config.getPageLengthInches();
+        double scale = Math.min(1.0, targetLongSide / Math.max(width, height));
+
+        double maxPixels = config.getMaxMegapixels() * 1_000_000.0;
+        double pixels = (double) width * height * scale * scale;
+        if (pixels > maxPixels) {
+            scale *= Math.sqrt(maxPixels / pixels);
+        }
+        return scale;
+    }
+
+    // Largest step that still decodes at least the target size, so the resampler only ever
+    // shrinks by less than half; raised further when the decoded raster would not fit the budget
+    static int subsampling(int width, int height, double scale, OcrProperties.Intake config) {
+        int subsampling = Math.max(1, (int) Math.floor(1 / scale));
+        double maxDecodePixels = config.getMaxDecodeMegapixels() * 1_000_000.0;
+        while (decodedPixels(width, subsampling) * decodedPixels(height, subsampling) > maxDecodePixels) {
+            subsampling++;
+        }
+        return subsampling;
+    }
+
+    private static double decodedPixels(int length, int subsampling) {
+        return (length + subsampling - 1) / subsampling;
+    }
+
+    private static BufferedImage resample(BufferedImage image, int width, int height) {
+        BufferedImage scaled = new BufferedImage(width, height, BufferedImage.TYPE_BYTE_GRAY);
+        Graphics2D graphics = scaled.createGraphics();
+        try {
+            graphics.setRenderingHint(RenderingHints.KEY_INTERPOLATION, RenderingHints.VALUE_INTERPOLATION_BILINEAR);
+            // Transparent areas end up white instead of black
+            graphics.drawImage(image, 0, 0, width, height, Color.WHITE, null);
+        } finally {
+            graphics.dispose();
+        }
+        return scaled;
+    }
+}
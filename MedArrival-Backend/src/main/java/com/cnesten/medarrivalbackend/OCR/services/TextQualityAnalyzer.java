@@ -0,0 +1,130 @@
+package com.cnesten.medarrivalbackend.OCR.services;
+
+import org.springframework.stereotype.Component;
+
+// Classifies extracted text in a single pass over a precomputed per-char class table,
+// it runs on every PDF page so it must stay allocation free
+@Component
+public class TextQualityAnalyzer {
+
+    private static final byte OTHER = 0;
+    private static final byte WHITESPACE = 1;
+    private static final byte DIGIT = 2;
+    private static final byte LATIN = 3;
+    private static final byte ARABIC = 4;
+    private static final byte GARBAGE = 5;
+
+    // Latin-1 glyphs that only show up in our documents when a font has a broken encoding
+    private static final String MAL_EXTRACTION_GLYPHS = "ØÝ¾¬¿¤¦¨¼½¸ßÞÖ¹";
+
+    private static final byte[] CHAR_CLASSES = buildCharClasses();
+
+    public TextQuality analyze(CharSequence text) {
+        int whitespace = 0, digits = 0, latin = 0, arabic = 0, garbage = 0, other = 0;
+
+        int length = text.length();
+        for (int i = 0; i < length; i++) {
+            char c = text.charAt(i);
+
+            if (Character.isHighSurrogate(c) && i + 1 < length && Character.isLowSurrogate(text.charAt(i + 1))) {
+                // Supplementary planes never hold French or Arabic text, only private use is suspicious
+                int codePoint = Character.toCodePoint(c, text.charAt(++i));
+                if (Character.getType(codePoint) == Character.PRIVATE_USE) garbage++;
+                else other++;
+                continue;
+            }
+
+            switch (CHAR_CLASSES[c]) {
+                case WHITESPACE -> whitespace++;
+                case DIGIT -> digits++;
+                case LATIN -> latin++;
+                case ARABIC -> arabic++;
+                case GARBAGE -> garbage++;
+                default -> other++;
+            }
+        }
+
+        return new TextQuality(whitespace, digits, latin, arabic, garbage, other);
+    }
+
+    private static byte[] buildCharClasses() {
+        byte[] classes = new byte[Character.MAX_VALUE + 1];
+
+        for (int c = 0; c <= Character.MAX_VALUE; c++) {
+            int type = Character.getType(c);
+
+            if (Character.isWhitespace(c) || Character.isSpaceChar(c)) {
+                classes[c] = WHITESPACE;
+            } else if (type == Character.CONTROL || type == Character.PRIVATE_USE
+                    || type == Character.SURROGATE || type == Character.UNASSIGNED || c == '\uFFFD') {
+                classes[c] = GARBAGE;
+            } else if (type == Character.DECIMAL_DIGIT_NUMBER) {
+                classes[c] = DIGIT;
+            } else if (Character.isLetter(c) || type == Character.NON_SPACING_MARK) {
+                Character.UnicodeScript script = Character.UnicodeScript.of(c);
+                if (script == Character.UnicodeScript.LATIN) classes[c] = LATIN;
+                else if (script == Character.UnicodeScript.ARABIC) classes[c] = ARABIC;
+                // Tatweel and tashkeel carry the common/inherited script, keep it with the Arabic letters it decorates
+                else if (c >= '\u0640' && c <= '\u065F') classes[c] = ARABIC;
+            }
+        }
+
+        for (char c : MAL_EXTRACTION_GLYPHS.toCharArray()) {
+            classes[c] = GARBAGE;
+        }
+
+        return classes;
+    }
+
+    public record TextQuality(int whitespace, int digits, int latin, int arabic, int garbage, int other) {
+
+        public static final TextQuality EMPTY = new TextQuality(0, 0, 0, 0, 0, 0);
+
+        public TextQuality plus(TextQuality other) {
+            return new TextQuality(whitespace + other.whitespace, digits + other.digits, latin + other.latin,
+                    arabic + other.arabic, garbage + other.garbage, this.other + other.other);
+        }
+
+        public int visible() {
+            return digits + latin + arabic + garbage + other;
+        }
+
+        public boolean isEmpty() {
+            return visible() == 0;
+        }
+
+        public boolean isProbablyMalExtracted() {
+            return garbage > 0;
+        }
+
+        public boolean hasArabic() {
+            return arabic > 0;
+        }
+
+        public boolean hasLatin() {
+            return latin > 0;
+        }
+
+        public double arabicRatio() {
+            return ratio(arabic);
+        }
+
+        public double latinRatio() {
+            return ratio(latin);
+        }
+
+        public double garbageRatio() {
+            return ratio(garbage);
+        }
+
+        public double whitespaceRatio() {
+            int total = visible() + whitespace;
+            return total == 0 ? 0 : (double) whitespace / total;
+        }
+
+        private double ratio(int count) {
+            int visible = visible();
+            return visible == 0 ? 0 : (double) count / visible;
+        }
+    }
+}
@@ -0,0 +1,149 @@
+package com.cnesten.medarrivalbackend.OCR.services;
+
+import com.cnesten.medarrivalbackend.Exceptions.OcrTimeoutException;
+import com.github.benmanes.caffeine.cache.Cache;
+import org.springframework.cache.support.AbstractValueAdaptingCache;
+
+import java.time.Duration;
+import java.util.Optional;
+import java.util.concurrent.Callable;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import java.util.function.Predicate;
+
+/**
+ * Spring cache with an in-memory Caffeine tier in front of the persistent
+ * {@link OcrResultStore}. Clearing the cache purges both tiers. Concurrent
+ * misses on one key are computed once, see {@link #get(Object, Callable)}.
+ */
+public class TieredOcrCache extends AbstractValueAdaptingCache {
+    private final String name;
+    // What the cached methods return, the only type read back from the store
+    private final Class<?> valueType;
+    private final Cache<Object, Object> memoryTier;
+    private final OcrResultStore store;
+    // Results that are returned but never kept, such as partial ones
+    private final Predicate<Object> storable;
+    private final OcrMetrics metrics;
+    // Longest a caller waits on an identical load in flight, its own deadline may cut it shorter
+    private final Duration maxWait;
+    private final ConcurrentMap<Object, CompletableFuture<Object>> inFlight = new ConcurrentHashMap<>();
+
+    public TieredOcrCache(String name, Class<?> valueType, Cache<Object, Object> memoryTier, OcrResultStore store,
+                          OcrMetrics metrics, Duration maxWait) {
+        this(name, valueType, memoryTier, store, metrics, maxWait, value -> true);
+    }
+
+    public TieredOcrCache(String name, Class<?> valueType, Cache<Object, Object> memoryTier, OcrResultStore store,
+                          OcrMetrics metrics, Duration maxWait, Predicate<Object> storable) {
+        super(false);
+        this.name = name;
+        this.valueType = valueType;
+        this.memoryTier = memoryTier;
+        this.store = store;
+        this.storable = storable;
+        this.metrics = metrics;
+        this.maxWait = maxWait;
+    }
+
+    @Override
+    public String getName() {
+        return name;
+    }
+
+    @Override
+    public Object getNativeCache() {
+        return memoryTier;
+    }
+
+    @Override
+    protected Object lookup(Object key) {
+        Object value = memoryTier.getIfPresent(key);
+        if (value != null) {
+            store.markAccessed(name, key);
+            metrics.countCacheGet(name, true, "memory");
+            return value;
+        }
+
+        Optional<?> stored = store.load(name, key, valueType);
+        stored.ifPresent(storedValue -> memoryTier.put(key, storedValue));
+        metrics.countCacheGet(name, stored.isPresent(), stored.isPresent() ? "store" : "none");
+        return stored.orElse(null);
+    }
+
+    // Single flight: concurrent misses on the same key share one load, run on the thread of the
+    // caller that missed first as with a plain sync cache. The value is stored as soon as the loader
+    // returns, whatever happened to the callers meanwhile. Callers that joined the flight wait
+    // within their own deadline, never longer than maxWait, and give up with an OcrTimeoutException.
+    @SuppressWarnings("unchecked")
+    @Override
+    public <T> T get(Object key, Callable<T> valueLoader) {
+        Object value = lookup(key);
+        if (value != null) {
+            return (T) value;
+        }
+
+        CompletableFuture<Object> flight = new CompletableFuture<>();
+        CompletableFuture<Object> running = inFlight.putIfAbsent(key, flight);
+        if (running == null) {
+            return (T) load(key, valueLoader, flight);
+        }
+
+        metrics.countCoalesced(name);
+        long waitMillis = OcrDeadline.remainingMillis(maxWait);
+        try {
+            return (T) running.get(waitMillis, TimeUnit.MILLISECONDS);
+        } catch (ExecutionException e) {
+            throw new ValueRetrievalException(key, valueLoader, e.getCause());
+        } catch (TimeoutException e) {
+            throw new ValueRetrievalException(key, valueLoader,
+                    new OcrTimeoutException("Timed out after " + waitMillis + " ms waiting for an identical OCR run"));
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new ValueRetrievalException(key, valueLoader, e);
+        }
+    }
+
+    private Object load(Object key, Callable<?> valueLoader, CompletableFuture<Object> flight) {
+        try {
+            // A previous flight may have landed between the lookup and this one taking off
+            Object loaded = memoryTier.getIfPresent(key);
+            if (loaded == null) {
+                loaded = valueLoader.call();
+                put(key, loaded);
+            }
+            flight.complete(loaded);
+            return loaded;
+        } catch (Throwable e) {
+            flight.completeExceptionally(e);
+            throw new ValueRetrievalException(key, valueLoader, e);
+        } finally {
+            inFlight.remove(key, flight);
+        }
+    }
+
+    @Override
+    public void put(Object key, Object value) {
+        if (value == null || !storable.test(value)) {
+            return;
+        }
+        memoryTier.put(key, value);
+        store.save(name, key, value);
+    }
+
+    @Override
+    public void evict(Object key) {
+        memoryTier.invalidate(key);
+        store.evict(name, key);
+    }
+
+    @Override
+    public void clear() {
+        memoryTier.invalidateAll();
+        store.clear(name);
+    }
+}
@@ -4,11 +4,12 @@ import org.springframework.web.multipart.MultipartFile;
 
 import java.io.*;
 
-public  class ByteArrayMultipartFile implements MultipartFile {
+public  class ByteArrayMultipartFile implements MultipartFile, ContentHashed {
     private final byte[] content;
     private final String filename;
     private final String originalFilename;
     private final String contentType;
+    private String contentHash;
 
     public ByteArrayMultipartFile(String filename, String originalFilename, String contentType, byte[] content) {
         this.filename = filename;
@@ -52,6 +53,14 @@ public  class ByteArrayMultipartFile implements MultipartFile {
         return new ByteArrayInputStream(content);
     }
 
+    @Override
+    public String getContentHash() {
+        if (contentHash == null) {
+            contentHash = HashUtils.sha256Hex(content);
+        }
+        return contentHash;
+    }
+
     @Override
     public void transferTo(File dest) throws IOException, IllegalStateException {
         try (FileOutputStream fos = new FileOutputStream(dest)) {
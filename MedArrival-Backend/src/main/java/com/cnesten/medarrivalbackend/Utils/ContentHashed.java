@@ -0,0 +1,8 @@
+package com.cnesten.medarrivalbackend.Utils;
+
+import java.io.IOException;
+
+// Content carrying the SHA-256 of its bytes, used to build stable cache keys
+public interface ContentHashed {
+    String getContentHash() throws IOException;
+}
@@ -0,0 +1,90 @@
+package com.cnesten.medarrivalbackend.Utils;
+
+import org.springframework.web.multipart.MultipartFile;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+
+// Upload already on disk (stored job file, spooled upload), read on demand instead of held in the heap.
+// The hash is known when the file was digested while being spooled, otherwise it is read once on first use.
+public class FileSystemMultipartFile implements MultipartFile, ContentHashed {
+    private final Path path;
+    private final String filename;
+    private final String originalFilename;
+    private final String contentType;
+    private volatile String contentHash;
+
+    public FileSystemMultipartFile(Path path, String filename, String originalFilename, String contentType) {
+        this.path = path;
+        this.filename = filename;
+        this.originalFilename = originalFilename;
+        this.contentType = contentType;
+    }
+
+    public FileSystemMultipartFile(Path path, String filename, String originalFilename, String contentType, String contentHash) {
+        this(path, filename, originalFilename, contentType);
+        this.contentHash = contentHash;
+    }
+
+    public Path getPath() {
+        return path;
+    }
+
+    @Override
+    public String getName() {
+        return filename;
+    }
+
+    @Override
+    public String getOriginalFilename() {
+        return originalFilename;
+    }
+
+    @Override
+    public String getContentType() {
+        return contentType;
+    }
+
+    @Override
+    public boolean isEmpty() {
+        return getSize() == 0;
+    }
+
+    @Override
+    public long getSize() {
+        try {
+            return Files.size(path);
+        } catch (IOException e) {
+            return 0;
+        }
+    }
+
+    @Override
+    public byte[] getBytes() throws IOException {
+        return Files.readAllBytes(path);
+    }
+
+    @Override
+    public InputStream getInputStream() throws IOException {
+        return new HashedInputStream(Files.newInputStream(path), this, path);
+    }
+
+    @Override
+    public String getContentHash() throws IOException {
+        if (contentHash == null) {
+            try (InputStream inputStream = Files.newInputStream(path)) {
+                contentHash = HashUtils.sha256Hex(inputStream);
+            }
+        }
+        return contentHash;
+    }
+
+    @Override
+    public void transferTo(File dest) throws IOException, IllegalStateException {
+        Files.copy(path, dest.toPath(), StandardCopyOption.REPLACE_EXISTING);
+    }
+}
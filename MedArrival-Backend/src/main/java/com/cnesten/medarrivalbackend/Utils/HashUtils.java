@@ -0,0 +1,70 @@
+package com.cnesten.medarrivalbackend.Utils;
+
+import java.awt.image.BufferedImage;
+import java.awt.image.DataBuffer;
+import java.awt.image.DataBufferByte;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.nio.charset.StandardCharsets;
+import java.security.DigestInputStream;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.HexFormat;
+
+public final class HashUtils {
+
+    private HashUtils() {
+    }
+
+    public static MessageDigest newSha256() {
+        try {
+            return MessageDigest.getInstance("SHA-256");
+        } catch (NoSuchAlgorithmException e) {
+            throw new IllegalStateException("SHA-256 not available", e);
+        }
+    }
+
+    public static String sha256Hex(byte[] content) {
+        return HexFormat.of().formatHex(newSha256().digest(content));
+    }
+
+    // Digests the stream while reading it, nothing is buffered beyond the copy buffer
+    public static String sha256Hex(InputStream inputStream) throws IOException {
+        MessageDigest digest = newSha256();
+        try (DigestInputStream in = new DigestInputStream(inputStream, digest)) {
+            in.transferTo(OutputStream.nullOutputStream());
+        }
+        return HexFormat.of().formatHex(digest.digest());
+    }
+
+    // Digests the raster of an image, byte backed rasters are hashed without copying them
+    public static String sha256Hex(BufferedImage image) {
+        MessageDigest digest = newSha256();
+        digest.update((image.getWidth() + "x" + image.getHeight() + ":" + image.getType() + ":")
+                .getBytes(StandardCharsets.US_ASCII));
+
+        DataBuffer dataBuffer = image.getRaster().getDataBuffer();
+        if (dataBuffer instanceof DataBufferByte byteBuffer) {
+            for (int bank = 0; bank < byteBuffer.getNumBanks(); bank++) {
+                digest.update(byteBuffer.getData(bank));
+            }
+        } else {
+            int width = image.getWidth();
+            int[] row = new int[width];
+            byte[] rowBytes = new byte[width * 4];
+            for (int y = 0; y < image.getHeight(); y++) {
+                image.getRGB(0, y, width, 1, row, 0, width);
+                for (int x = 0; x < width; x++) {
+                    int rgb = row[x];
+                    rowBytes[x * 4] = (byte) (rgb >> 24);
+                    rowBytes[x * 4 + 1] = (byte) (rgb >> 16);
+                    rowBytes[x * 4 + 2] = (byte) (rgb >> 8);
+                    rowBytes[x * 4 + 3] = (byte) rgb;
+                }
+                digest.update(rowBytes);
+            }
+        }
+        return HexFormat.of().formatHex(digest.digest());
+    }
+}
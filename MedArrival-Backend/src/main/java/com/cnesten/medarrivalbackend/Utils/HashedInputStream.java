@@ -0,0 +1,28 @@
+package com.cnesten.medarrivalbackend.Utils;
+
+import java.io.FilterInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.file.Path;
+
+// Stream over a file already on disk, carrying the hash of its content for cache keys.
+// Consumers that need random access (PDF loading) open the path itself instead of copying the stream.
+public class HashedInputStream extends FilterInputStream implements ContentHashed {
+    private final ContentHashed source;
+    private final Path path;
+
+    public HashedInputStream(InputStream in, ContentHashed source, Path path) {
+        super(in);
+        this.source = source;
+        this.path = path;
+    }
+
+    public Path getPath() {
+        return path;
+    }
+
+    @Override
+    public String getContentHash() throws IOException {
+        return source.getContentHash();
+    }
+}
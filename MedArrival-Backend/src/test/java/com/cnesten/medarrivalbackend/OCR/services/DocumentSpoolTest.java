@@ -0,0 +1,104 @@
+package com.cnesten.medarrivalbackend.OCR.services;
+
+import com.cnesten.medarrivalbackend.OCR.Config.OcrProperties;
+import com.cnesten.medarrivalbackend.OCR.Enums.PdfAccessMode;
+import com.cnesten.medarrivalbackend.Utils.FileSystemMultipartFile;
+import com.cnesten.medarrivalbackend.Utils.HashUtils;
+import org.apache.pdfbox.pdmodel.PDDocument;
+import org.apache.pdfbox.pdmodel.PDPage;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import org.springframework.mock.web.MockMultipartFile;
+
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.stream.Stream;
+
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class DocumentSpoolTest {
+    private static final byte[] CONTENT = "%PDF-1.7 not really".getBytes(StandardCharsets.US_ASCII);
+
+    @TempDir
+    Path spoolDirectory;
+
+    private final OcrProperties ocrProperties = new OcrProperties();
+    private DocumentSpool documentSpool;
+
+    @BeforeEach
+    void setUp() {
+        ocrProperties.getPdf().setSpoolDirectory(spoolDirectory.toString());
+        documentSpool = new DocumentSpool(ocrProperties);
+    }
+
+    @Test
+    void uploadIsSpooledWithTheHashOfItsContent() throws IOException {
+        MockMultipartFile upload = new MockMultipartFile("file", "invoice.pdf", "application/pdf", CONTENT);
+
+        FileSystemMultipartFile spooled = documentSpool.spool(upload);
+
+        assertEquals(spoolDirectory, spooled.getPath().getParent());
+        assertArrayEquals(CONTENT, Files.readAllBytes(spooled.getPath()));
+        assertEquals(HashUtils.sha256Hex(CONTENT), spooled.getContentHash());
+        assertEquals("file", spooled.getName());
+        assertEquals("invoice.pdf", spooled.getOriginalFilename());
+        assertEquals("application/pdf", spooled.getContentType());
+    }
+
+    @Test
+    void streamIsCopiedAndDeletedOnRelease() throws IOException {
+        InputStream inputStream = new ByteArrayInputStream(CONTENT);
+
+        Path spooled = documentSpool.spool(inputStream);
+        assertArrayEquals(CONTENT, Files.readAllBytes(spooled));
+
+        documentSpool.release(inputStream, spooled);
+        assertFalse(Files.exists(spooled));
+    }
+
+    @Test
+    void fileOnDiskIsReadInPlaceAndKeptOnRelease() throws IOException {
+        FileSystemMultipartFile upload = documentSpool.spool(
+                new MockMultipartFile("file", "invoice.pdf", "application/pdf", CONTENT));
+
+        try (InputStream inputStream = upload.getInputStream()) {
+            Path spooled = documentSpool.spool(inputStream);
+            assertEquals(upload.getPath(), spooled);
+            assertEquals(1, spooledFiles());
+
+            documentSpool.release(inputStream, spooled);
+        }
+        assertTrue(Files.exists(upload.getPath()));
+    }
+
+    @Test
+    void spooledPdfOpensInEveryAccessMode() throws IOException {
+        Path pdf = spoolDirectory.resolve("two-pages.pdf");
+        try (PDDocument document = new PDDocument()) {
+            document.addPage(new PDPage());
+            document.addPage(new PDPage());
+            document.save(pdf.toFile());
+        }
+
+        for (PdfAccessMode access : PdfAccessMode.values()) {
+            ocrProperties.getPdf().setAccess(access);
+            try (PDDocument document = documentSpool.loadPdf(pdf)) {
+                assertEquals(2, document.getNumberOfPages(), access.name());
+            }
+        }
+    }
+
+    private long spooledFiles() throws IOException {
+        try (Stream<Path> files = Files.list(spoolDirectory)) {
+            return files.count();
+        }
+    }
+}
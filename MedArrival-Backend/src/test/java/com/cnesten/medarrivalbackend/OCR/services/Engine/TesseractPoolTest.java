@@ -0,0 +1,97 @@
+package com.cnesten.medarrivalbackend.OCR.services.Engine;
+
+import com.cnesten.medarrivalbackend.Exceptions.OcrEngineUnavailableException;
+import com.cnesten.medarrivalbackend.Exceptions.OcrTimeoutException;
+import com.cnesten.medarrivalbackend.OCR.Config.OcrProperties;
+import com.cnesten.medarrivalbackend.OCR.Enums.Language;
+import com.cnesten.medarrivalbackend.OCR.Enums.OcrProfile;
+import com.cnesten.medarrivalbackend.OCR.services.OcrDeadline;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.time.Duration;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNotSame;
+import static org.junit.jupiter.api.Assertions.assertSame;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+
+// Engines are only created here, never initialized, so no native Tesseract is needed
+class TesseractPoolTest {
+    private static final OcrProfile PROFILE = OcrProfile.BALANCED;
+
+    private final SimpleMeterRegistry meterRegistry = new SimpleMeterRegistry();
+    private final OcrProperties ocrProperties = new OcrProperties();
+    private TesseractPool tesseractPool;
+
+    @BeforeEach
+    void setUp() {
+        OcrProperties.Pool pool = ocrProperties.getPool();
+        pool.setMaxEngines(2);
+        pool.setDefaultSize(2);
+        pool.setBorrowTimeout(Duration.ofMillis(200));
+        tesseractPool = new TesseractPool(ocrProperties, meterRegistry);
+    }
+
+    @Test
+    void releasedEngineIsReusedByItsPool() {
+        PooledTesseract engine = tesseractPool.borrow(Language.FRENCH, PROFILE);
+        tesseractPool.release(engine);
+
+        assertSame(engine, tesseractPool.borrow(Language.FRENCH, PROFILE));
+        assertEquals(1.0, liveEngines());
+    }
+
+    @Test
+    void budgetBoundsEnginesAcrossPools() {
+        tesseractPool.borrow(Language.FRENCH, PROFILE);
+        tesseractPool.borrow(Language.ARABE, PROFILE);
+        assertEquals(2.0, liveEngines());
+
+        // Both engines are busy, the third pool has room of its own but not in the budget
+        assertThrows(OcrEngineUnavailableException.class, () -> tesseractPool.borrow(Language.ENGLISH, PROFILE));
+        assertEquals(2.0, liveEngines());
+    }
+
+    @Test
+    void engineIdleForLongestMakesRoomForAnotherPool() throws InterruptedException {
+        PooledTesseract french = tesseractPool.borrow(Language.FRENCH, PROFILE);
+        PooledTesseract arabic = tesseractPool.borrow(Language.ARABE, PROFILE);
+        tesseractPool.release(french);
+        Thread.sleep(5);
+        tesseractPool.release(arabic);
+
+        PooledTesseract english = tesseractPool.borrow(Language.ENGLISH, PROFILE);
+
+        assertEquals(Language.ENGLISH, english.getEngineLanguage());
+        assertEquals(2.0, liveEngines());
+        assertEquals(0.0, idleEngines(Language.FRENCH));
+        assertEquals(1.0, idleEngines(Language.ARABE));
+        // The French pool starts over with a new engine, the budget now taken from the Arabic one
+        assertNotSame(french, tesseractPool.borrow(Language.FRENCH, PROFILE));
+        assertEquals(0.0, idleEngines(Language.ARABE));
+    }
+
+    @Test
+    void waitCutShortByTheDeadlineIsATimeout() {
+        tesseractPool.borrow(Language.FRENCH, PROFILE);
+        tesseractPool.borrow(Language.ARABE, PROFILE);
+
+        assertThrows(OcrTimeoutException.class, () -> OcrDeadline.within(
+                System.nanoTime() + TimeUnit.MILLISECONDS.toNanos(50),
+                () -> tesseractPool.borrow(Language.ENGLISH, PROFILE)));
+    }
+
+    private double liveEngines() {
+        return meterRegistry.get("ocr.pool.engines").gauge().value();
+    }
+
+    private double idleEngines(Language language) {
+        return meterRegistry.get("ocr.pool.idle")
+                .tag("language", language.name())
+                .tag("profile", PROFILE.name())
+                .gauge().value();
+    }
+}
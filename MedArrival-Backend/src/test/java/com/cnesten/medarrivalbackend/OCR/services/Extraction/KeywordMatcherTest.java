@@ -0,0 +1,59 @@
+package com.cnesten.medarrivalbackend.OCR.services.Extraction;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class KeywordMatcherTest {
+
+    private static KeywordMatcher<String> matcher(String... keywords) {
+        Map<String, String> map = new LinkedHashMap<>();
+        for (String keyword : keywords) {
+            map.put(keyword, keyword);
+        }
+        return new KeywordMatcher<>(map);
+    }
+
+    @Test
+    void longestKeywordWinsAtTheSameStart() {
+        String text = "Date de péremption : 02/2026";
+        List<KeywordMatcher.Match<String>> matches = matcher("date", "peremption", "date de peremption").find(text);
+
+        assertEquals(1, matches.size());
+        assertEquals("date de peremption", matches.get(0).value());
+        assertEquals(0, matches.get(0).start());
+        assertEquals("Date de péremption".length(), matches.get(0).end());
+    }
+
+    @Test
+    void leftmostMatchWinsOverAnOverlappingLaterOne() {
+        List<KeywordMatcher.Match<String>> matches = matcher("total ht", "ht taxes").find("Total HT taxes 100");
+
+        assertEquals(1, matches.size());
+        assertEquals("total ht", matches.get(0).value());
+    }
+
+    @Test
+    void foldsCaseAccentsAndWhitespace() {
+        String text = "Réf  Bon\tCOMMANDE : BC-12";
+        List<KeywordMatcher.Match<String>> matches = matcher("ref bon commande").find(text);
+
+        assertEquals(1, matches.size());
+        assertEquals(0, matches.get(0).start());
+        assertEquals(text.indexOf(" :"), matches.get(0).end());
+    }
+
+    @Test
+    void matchesWholeWordsOnly() {
+        KeywordMatcher<String> matcher = matcher("date", "lot");
+
+        assertTrue(matcher.find("Update pilot").isEmpty());
+        // Digits may follow a label directly
+        assertEquals(1, matcher.find("Lot123").size());
+    }
+}
@@ -0,0 +1,104 @@
+package com.cnesten.medarrivalbackend.OCR.services.Extraction;
+
+import com.cnesten.medarrivalbackend.DTO.ReceiptDTO;
+import com.cnesten.medarrivalbackend.DTO.ReceiptItemDTO;
+import com.cnesten.medarrivalbackend.OCR.DTO.ReceiptExtractionDTO;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.Test;
+
+import java.time.LocalDate;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class ReceiptExtractionServiceTest {
+    private static final float DELTA = 0.001f;
+
+    private final ReceiptExtractionService service = new ReceiptExtractionService(new SimpleMeterRegistry());
+
+    @Test
+    void parsesFrenchAndEnglishAmounts() {
+        assertEquals(1234.56f, ReceiptExtractionService.parseAmount("1 234,56"), DELTA);
+        assertEquals(1234.56f, ReceiptExtractionService.parseAmount("1\u00A0234,56"), DELTA);
+        assertEquals(1234.56f, ReceiptExtractionService.parseAmount("1.234,56"), DELTA);
+        assertEquals(1234.56f, ReceiptExtractionService.parseAmount("1,234.56"), DELTA);
+        assertEquals(1234.56f, ReceiptExtractionService.parseAmount("1234.56"), DELTA);
+        assertEquals(1234f, ReceiptExtractionService.parseAmount("1.234"), DELTA);
+        assertEquals(12.5f, ReceiptExtractionService.parseAmount("12,50"), DELTA);
+        assertNull(ReceiptExtractionService.parseAmount("12a"));
+    }
+
+    @Test
+    void extractsFieldsItemsAndEndOfMonthExpiry() {
+        ReceiptExtractionDTO extraction = service.extract("""
+                FACTURE N° F2024-0117
+                Date : 15/03/2024
+                GNT-1234 Gants nitrile 10 BTE 12,50 125,00
+                Lot : L2301 Date de péremption : 02/2026
+                SER-5678 Seringues 5ml 100 2,00 200,00
+                Total HT : 325,00
+                TVA : 20 %
+                Total TTC : 390,00
+                """);
+        ReceiptDTO receipt = extraction.getReceipt();
+
+        assertEquals("F2024-0117", receipt.getReceiptNumber());
+        assertEquals(LocalDate.of(2024, 3, 15).atStartOfDay(), receipt.getReceiptDate());
+        assertEquals(325f, receipt.getTotalHT(), DELTA);
+        assertEquals(390f, receipt.getTotalTTC(), DELTA);
+        assertEquals(20f, receipt.getTvaPercentage(), DELTA);
+
+        ReceiptItemDTO gloves = receipt.getReceiptItems().iterator().next();
+        assertEquals("GNT-1234", gloves.getArticleCode());
+        assertEquals("L2301", gloves.getLotNumber());
+        // mm/yyyy on an expiration date means the last day of that month
+        assertEquals(LocalDate.of(2026, 2, 28).atStartOfDay(), gloves.getExpirationDate());
+
+        // Total HT x (1 + TVA) = Total TTC confirms the totals
+        assertTrue(extraction.getFieldConfidence().get("totalTTC") >= 0.98f);
+    }
+
+    @Test
+    void countsDuplicateRowsOnceInTheTotals() {
+        ReceiptExtractionDTO extraction = service.extract("""
+                GNT-1234 Gants nitrile 10 BTE 12,50 125,00
+                SER-5678 Seringues 5ml 100 2,00 200,00
+                GNT-1234 Gants nitrile 10 BTE 12,50 125,00
+                Total HT : 325,00
+                """);
+
+        assertEquals(2, extraction.getReceipt().getReceiptItems().size());
+        assertEquals(325f, extraction.getReceipt().getTotalAmount(), DELTA);
+        assertEquals(2, extraction.getItemConfidence().size());
+        // Only the distinct items add up to Total HT
+        extraction.getItemConfidence().forEach(confidence -> assertTrue(confidence >= 0.9f));
+    }
+
+    @Test
+    void keepsIdenticalRowsThatTheTotalsCount() {
+        ReceiptExtractionDTO extraction = service.extract("""
+                GNT-1234 Gants nitrile 10 BTE 12,50 125,00
+                SER-5678 Seringues 5ml 100 2,00 200,00
+                GNT-1234 Gants nitrile 10 BTE 12,50 125,00
+                Total HT : 450,00
+                """);
+
+        assertEquals(3, extraction.getReceipt().getReceiptItems().size());
+        assertEquals(450f, extraction.getReceipt().getTotalAmount(), DELTA);
+        extraction.getItemConfidence().forEach(confidence -> assertTrue(confidence >= 0.9f));
+    }
+
+    @Test
+    void keepsIdenticalRowsWithoutEvidenceAtALowerConfidence() {
+        ReceiptExtractionDTO extraction = service.extract("""
+                GNT-1234 Gants nitrile 10 BTE 12,50 125,00
+                SER-5678 Seringues 5ml 100 2,00 200,00
+                GNT-1234 Gants nitrile 10 BTE 12,50 125,00
+                """);
+
+        assertEquals(3, extraction.getReceipt().getReceiptItems().size());
+        assertEquals(450f, extraction.getReceipt().getTotalAmount(), DELTA);
+        assertTrue(extraction.getItemConfidence().get(2) < extraction.getItemConfidence().get(0));
+    }
+}
@@ -0,0 +1,99 @@
+package com.cnesten.medarrivalbackend.OCR.services;
+
+import com.cnesten.medarrivalbackend.OCR.Config.OcrProperties;
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Deque;
+import java.util.List;
+import java.util.concurrent.Executor;
+import java.util.concurrent.RejectedExecutionException;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+
+class FairPageSchedulerTest {
+    private final OcrProperties ocrProperties = new OcrProperties();
+    // Pages handed to the executor, run by the test one at a time
+    private final Deque<Runnable> submitted = new ArrayDeque<>();
+    private final List<String> ran = new ArrayList<>();
+
+    @Test
+    void documentsTakeTurnsPageByPage() {
+        FairPageScheduler scheduler = scheduler(1, submitted::addLast);
+        Executor running = scheduler.newLane();
+        Executor large = scheduler.newLane();
+        Executor small = scheduler.newLane();
+
+        running.execute(page("running"));
+        for (int page = 0; page < 3; page++) {
+            large.execute(page("large-" + page));
+        }
+        small.execute(page("small-0"));
+        runAll();
+
+        assertEquals(List.of("running", "large-0", "small-0", "large-1", "large-2"), ran);
+    }
+
+    @Test
+    void keepsNoMorePagesInFlightThanThreads() {
+        FairPageScheduler scheduler = scheduler(2, submitted::addLast);
+        Executor lane = scheduler.newLane();
+
+        for (int page = 0; page < 5; page++) {
+            lane.execute(page("page-" + page));
+        }
+        assertEquals(2, submitted.size());
+
+        submitted.pollFirst().run();
+        assertEquals(2, submitted.size());
+
+        runAll();
+        assertEquals(5, ran.size());
+    }
+
+    @Test
+    void rejectedPageWaitsForTheNextCompletion() {
+        int[] submissions = {0};
+        FairPageScheduler scheduler = scheduler(2, page -> {
+            if (++submissions[0] == 2) {
+                throw new RejectedExecutionException("queue full");
+            }
+            submitted.addLast(page);
+        });
+        Executor lane = scheduler.newLane();
+
+        lane.execute(page("page-0"));
+        // Rejected while page-0 is in flight, kept in the lane
+        lane.execute(page("page-1"));
+        assertEquals(1, submitted.size());
+
+        runAll();
+        assertEquals(List.of("page-0", "page-1"), ran);
+    }
+
+    @Test
+    void rejectionWithNothingInFlightReachesTheSubmitter() {
+        FairPageScheduler scheduler = scheduler(2, page -> {
+            throw new RejectedExecutionException("shut down");
+        });
+
+        assertThrows(RejectedExecutionException.class, () -> scheduler.newLane().execute(page("page-0")));
+    }
+
+    private FairPageScheduler scheduler(int threads, Executor executor) {
+        ocrProperties.getExecutor().setThreads(threads);
+        return new FairPageScheduler(ocrProperties, executor);
+    }
+
+    private Runnable page(String name) {
+        return () -> ran.add(name);
+    }
+
+    private void runAll() {
+        while (!submitted.isEmpty()) {
+            submitted.pollFirst().run();
+        }
+    }
+}
@@ -0,0 +1,85 @@
+package com.cnesten.medarrivalbackend.OCR.services;
+
+import com.cnesten.medarrivalbackend.Exceptions.OcrOverloadedException;
+import com.cnesten.medarrivalbackend.OCR.Config.OcrProperties;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.time.Duration;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+
+class OcrAdmissionControllerTest {
+    private final SimpleMeterRegistry meterRegistry = new SimpleMeterRegistry();
+    private final OcrProperties ocrProperties = new OcrProperties();
+    private OcrAdmissionController controller;
+
+    @BeforeEach
+    void setUp() {
+        OcrProperties.Admission admission = ocrProperties.getAdmission();
+        admission.setMaxPages(4);
+        admission.setMaxClientShare(0.5);
+        admission.setMaxQueued(1);
+        admission.setMaxQueuedPerClient(1);
+        admission.setMaxWait(Duration.ofMillis(100));
+        controller = new OcrAdmissionController(ocrProperties, meterRegistry);
+    }
+
+    @Test
+    void busyClientIsCappedToItsShareWhileOthersGetIn() {
+        OcrAdmissionController.Permit first = controller.admit("scanner-a", 2);
+
+        // Room is left in the budget, but scanner-a already holds its half of it
+        OcrOverloadedException rejected = assertThrows(OcrOverloadedException.class, () -> controller.admit("scanner-a", 1));
+        assertEquals("Timed out waiting for OCR capacity", rejected.getMessage());
+
+        OcrAdmissionController.Permit other = controller.admit("scanner-b", 2);
+        assertEquals(4.0, inFlightPages());
+
+        first.close();
+        other.close();
+        assertEquals(0.0, inFlightPages());
+    }
+
+    @Test
+    void rejectsWhenTheQueueIsFullAndServesTheQueueOnRelease() throws Exception {
+        ocrProperties.getAdmission().setMaxWait(Duration.ofSeconds(10));
+        // Larger than the whole budget, it still runs alone
+        OcrAdmissionController.Permit whole = controller.admit("scanner-a", 100);
+        assertEquals(4.0, inFlightPages());
+
+        CompletableFuture<OcrAdmissionController.Permit> waiting =
+                CompletableFuture.supplyAsync(() -> controller.admit("scanner-b", 1));
+        awaitQueued(1);
+
+        OcrOverloadedException rejected = assertThrows(OcrOverloadedException.class, () -> controller.admit("scanner-c", 1));
+        assertEquals("OCR queue is full", rejected.getMessage());
+        assertEquals(Duration.ofSeconds(10), rejected.getRetryAfter());
+        assertEquals(1.0, meterRegistry.get("ocr.admission.rejected").tag("reason", "queue_full").counter().count());
+
+        whole.close();
+        waiting.get(5, TimeUnit.SECONDS).close();
+        assertEquals(0.0, queued());
+        assertEquals(0.0, inFlightPages());
+    }
+
+    private void awaitQueued(int expected) throws InterruptedException {
+        long deadline = System.nanoTime() + TimeUnit.SECONDS.toNanos(5);
+        while (queued() != expected && System.nanoTime() < deadline) {
+            Thread.sleep(5);
+        }
+        assertEquals(expected, queued());
+    }
+
+    private double queued() {
+        return meterRegistry.get("ocr.admission.queued").gauge().value();
+    }
+
+    private double inFlightPages() {
+        return meterRegistry.get("ocr.admission.pages.in_flight").gauge().value();
+    }
+}
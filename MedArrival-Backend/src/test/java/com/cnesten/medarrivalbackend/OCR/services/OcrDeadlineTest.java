@@ -0,0 +1,41 @@
+package com.cnesten.medarrivalbackend.OCR.services;
+
+import org.junit.jupiter.api.Test;
+
+import java.time.Duration;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class OcrDeadlineTest {
+    private static final Duration CAP = Duration.ofSeconds(60);
+
+    @Test
+    void withoutADeadlineTheCapApplies() {
+        assertEquals(60_000, OcrDeadline.remainingMillis(CAP));
+    }
+
+    @Test
+    void nestedDeadlineNeverExtendsTheOuterOne() {
+        long now = System.nanoTime();
+
+        long[] remaining = OcrDeadline.within(now + TimeUnit.SECONDS.toNanos(2), () -> new long[]{
+                OcrDeadline.within(now + TimeUnit.SECONDS.toNanos(30), () -> OcrDeadline.remainingMillis(CAP)),
+                OcrDeadline.within(now + TimeUnit.MILLISECONDS.toNanos(500), () -> OcrDeadline.remainingMillis(CAP)),
+                OcrDeadline.remainingMillis(CAP)});
+
+        assertTrue(remaining[0] <= 2_000 && remaining[0] > 1_000, "outer deadline " + remaining[0]);
+        assertTrue(remaining[1] <= 500, "inner deadline " + remaining[1]);
+        // The outer deadline is back once the inner one is left
+        assertTrue(remaining[2] > 1_000, "restored deadline " + remaining[2]);
+        assertEquals(60_000, OcrDeadline.remainingMillis(CAP));
+    }
+
+    @Test
+    void passedDeadlineLeavesNothing() {
+        long remaining = OcrDeadline.within(System.nanoTime() - 1, () -> OcrDeadline.remainingMillis(CAP));
+
+        assertEquals(0, remaining);
+    }
+}
@@ -0,0 +1,87 @@
+package com.cnesten.medarrivalbackend.OCR.services;
+
+import com.cnesten.medarrivalbackend.OCR.Config.OcrProperties;
+import com.cnesten.medarrivalbackend.OCR.DTO.OcrTextDTO;
+import com.cnesten.medarrivalbackend.OCR.Enums.PdfExtractionStrategy;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.apache.pdfbox.pdmodel.PDDocument;
+import org.apache.pdfbox.pdmodel.PDPage;
+import org.apache.pdfbox.pdmodel.common.PDRectangle;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.awt.image.BufferedImage;
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.time.Duration;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+
+class PdfServiceTest {
+    private final SimpleMeterRegistry meterRegistry = new SimpleMeterRegistry();
+    private final OcrProperties ocrProperties = new OcrProperties();
+    private final OcrService ocrService = mock(OcrService.class);
+    private final ExecutorService pageExecutor = Executors.newFixedThreadPool(2);
+    // Holds back the engine call of a page stuck past its deadline
+    private final CountDownLatch stuck = new CountDownLatch(1);
+    private PdfService pdfService;
+
+    @BeforeEach
+    void setUp() {
+        ocrProperties.getExecutor().setThreads(2);
+        ocrProperties.getDeadlines().setPage(Duration.ofSeconds(2));
+        ocrProperties.getDeadlines().setDocument(Duration.ofSeconds(20));
+        pdfService = new PdfService(ocrService, new TextQualityAnalyzer(), mock(LanguageDetectionService.class),
+                mock(LanguageProbeService.class), ocrProperties,
+                new FairPageScheduler(ocrProperties, pageExecutor), new DocumentSpool(ocrProperties),
+                new OcrMetrics(meterRegistry));
+    }
+
+    @AfterEach
+    void tearDown() {
+        stuck.countDown();
+        pageExecutor.shutdownNow();
+    }
+
+    @Test
+    void pagePastItsDeadlineIsMarkedAndTheOthersAreKept() throws Exception {
+        AtomicInteger calls = new AtomicInteger();
+        when(ocrService.recognize(any(BufferedImage.class), anyString(), any())).thenAnswer(invocation -> {
+            if (calls.incrementAndGet() == 1) {
+                return OcrTextDTO.of("recognized");
+            }
+            stuck.await(10, TimeUnit.SECONDS);
+            return OcrTextDTO.of("too late");
+        });
+
+        String text = pdfService.extractTextFromPdf(new ByteArrayInputStream(blankPdf(2)),
+                PdfExtractionStrategy.TRANSFORM_TO_IMAGE, "fra", null);
+
+        assertTrue(text.contains("recognized"), text);
+        assertTrue(PdfService.isPartial(text), text);
+        assertEquals(1, text.split("\\[OCR timed out on page ", -1).length - 1, text);
+        assertEquals(1.0, meterRegistry.get("ocr.timeouts").tag("scope", "page").counter().count());
+    }
+
+    private static byte[] blankPdf(int pages) throws IOException {
+        try (PDDocument document = new PDDocument(); ByteArrayOutputStream output = new ByteArrayOutputStream()) {
+            for (int page = 0; page < pages; page++) {
+                document.addPage(new PDPage(new PDRectangle(100, 100)));
+            }
+            document.save(output);
+            return output.toByteArray();
+        }
+    }
+}
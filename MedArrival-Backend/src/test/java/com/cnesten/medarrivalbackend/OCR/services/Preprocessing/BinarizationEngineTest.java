@@ -0,0 +1,81 @@
+package com.cnesten.medarrivalbackend.OCR.services.Preprocessing;
+
+import com.cnesten.medarrivalbackend.OCR.Config.OcrProperties;
+import com.cnesten.medarrivalbackend.OCR.Enums.BinarizationMethod;
+import org.junit.jupiter.api.Test;
+
+import java.awt.image.BufferedImage;
+import java.awt.image.WritableRaster;
+import java.util.Random;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class BinarizationEngineTest {
+
+    @Test
+    void otsuThresholdSeparatesInkFromPaper() {
+        int[] histogram = new int[256];
+        for (int level = 20; level <= 40; level++) {
+            histogram[level] = 50;
+        }
+        for (int level = 190; level <= 230; level++) {
+            histogram[level] = 400;
+        }
+
+        int threshold = BinarizationEngine.otsuThreshold(histogram);
+
+        assertTrue(threshold > 40 && threshold <= 190, "threshold " + threshold);
+    }
+
+    @Test
+    void sauvolaBandsMatchAWholePageWindow() {
+        OcrProperties ocrProperties = new OcrProperties();
+        OcrProperties.Preprocessing config = ocrProperties.getPreprocessing();
+        // Tall enough to be split into many bands, each reading a halo of its neighbours' rows
+        BufferedImage page = noisyPage(60, 1500, new Random(42));
+
+        BufferedImage binary = new BinarizationEngine(ocrProperties).binarize(page, BinarizationMethod.SAUVOLA);
+
+        int radius = Math.max(1, config.getSauvolaWindow() / 2);
+        WritableRaster gray = page.getRaster();
+        for (int y = 0; y < page.getHeight(); y++) {
+            for (int x = 0; x < page.getWidth(); x++) {
+                int expected = sauvolaWhite(gray, x, y, radius, config.getSauvolaK()) ? 1 : 0;
+                assertEquals(expected, binary.getRaster().getSample(x, y, 0), "pixel " + x + "," + y);
+            }
+        }
+    }
+
+    // Noise over the whole gray range keeps many pixels close to their threshold, so a window
+    // missing rows of a neighbouring band flips some of them
+    private static BufferedImage noisyPage(int width, int height, Random random) {
+        BufferedImage page = new BufferedImage(width, height, BufferedImage.TYPE_BYTE_GRAY);
+        WritableRaster raster = page.getRaster();
+        for (int y = 0; y < height; y++) {
+            for (int x = 0; x < width; x++) {
+                raster.setSample(x, y, 0, random.nextInt(256));
+            }
+        }
+        return page;
+    }
+
+    // The window clipped to the page, summed directly instead of through integral images
+    private static boolean sauvolaWhite(WritableRaster gray, int x, int y, int radius, double k) {
+        long sum = 0;
+        long squares = 0;
+        int area = 0;
+        for (int wy = Math.max(0, y - radius); wy <= Math.min(gray.getHeight() - 1, y + radius); wy++) {
+            for (int wx = Math.max(0, x - radius); wx <= Math.min(gray.getWidth() - 1, x + radius); wx++) {
+                int value = gray.getSample(wx, wy, 0);
+                sum += value;
+                squares += (long) value * value;
+                area++;
+            }
+        }
+        double mean = (double) sum / area;
+        double variance = (double) squares / area - mean * mean;
+        double deviation = variance > 0 ? Math.sqrt(variance) : 0;
+        return gray.getSample(x, y, 0) > mean * (1 + k * (deviation / 128.0 - 1));
+    }
+}
@@ -0,0 +1,134 @@
+package com.cnesten.medarrivalbackend.OCR.services;
+
+import com.cnesten.medarrivalbackend.Exceptions.OcrTimeoutException;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.Test;
+import org.springframework.cache.Cache;
+
+import java.time.Duration;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertInstanceOf;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+
+class TieredOcrCacheTest {
+    private final SimpleMeterRegistry meterRegistry = new SimpleMeterRegistry();
+    private final OcrResultStore store = mock(OcrResultStore.class);
+    private final TieredOcrCache cache = new TieredOcrCache("ocrCache", String.class,
+            Caffeine.newBuilder().build(), store, new OcrMetrics(meterRegistry), Duration.ofSeconds(10),
+            value -> !PdfService.isPartial((String) value));
+
+    @Test
+    void concurrentMissesOnOneKeyLoadOnce() throws Exception {
+        AtomicInteger loads = new AtomicInteger();
+        CountDownLatch release = new CountDownLatch(1);
+
+        CompletableFuture<String> leader = CompletableFuture.supplyAsync(() -> cache.get("key", () -> {
+            loads.incrementAndGet();
+            release.await();
+            return "text";
+        }));
+        awaitLoads(loads, 1);
+        CompletableFuture<String> waiter = CompletableFuture.supplyAsync(() -> cache.get("key", () -> {
+            loads.incrementAndGet();
+            return "other";
+        }));
+        awaitCoalesced(1);
+        release.countDown();
+
+        assertEquals("text", leader.get(5, TimeUnit.SECONDS));
+        assertEquals("text", waiter.get(5, TimeUnit.SECONDS));
+        assertEquals(1, loads.get());
+        verify(store, times(1)).save("ocrCache", "key", "text");
+    }
+
+    @Test
+    void failedLoadReachesTheWaitersAndIsNotCached() throws Exception {
+        AtomicInteger loads = new AtomicInteger();
+        CountDownLatch release = new CountDownLatch(1);
+
+        CompletableFuture<String> leader = CompletableFuture.supplyAsync(() -> cache.get("key", () -> {
+            loads.incrementAndGet();
+            release.await();
+            throw new IllegalStateException("engine crashed");
+        }));
+        awaitLoads(loads, 1);
+        CompletableFuture<String> waiter = CompletableFuture.supplyAsync(() -> cache.get("key", () -> "other"));
+        awaitCoalesced(1);
+        release.countDown();
+
+        for (CompletableFuture<String> caller : List.of(leader, waiter)) {
+            Exception failure = assertThrows(Exception.class, () -> caller.get(5, TimeUnit.SECONDS));
+            Cache.ValueRetrievalException retrieval = assertInstanceOf(Cache.ValueRetrievalException.class, failure.getCause());
+            assertInstanceOf(IllegalStateException.class, retrieval.getCause());
+        }
+        verify(store, never()).save(any(), any(), any());
+
+        // Nothing is left behind, the next miss loads again
+        assertEquals("text", cache.get("key", () -> "text"));
+    }
+
+    @Test
+    void waiterGivesUpAtItsDeadlineWhileTheLoadCompletes() throws Exception {
+        CountDownLatch started = new CountDownLatch(1);
+        CountDownLatch release = new CountDownLatch(1);
+
+        CompletableFuture<String> leader = CompletableFuture.supplyAsync(() -> cache.get("key", () -> {
+            started.countDown();
+            release.await();
+            return "text";
+        }));
+        assertTrue(started.await(5, TimeUnit.SECONDS));
+
+        Cache.ValueRetrievalException timedOut = assertThrows(Cache.ValueRetrievalException.class,
+                () -> OcrDeadline.within(System.nanoTime() + TimeUnit.MILLISECONDS.toNanos(50),
+                        () -> cache.get("key", () -> "other")));
+        assertInstanceOf(OcrTimeoutException.class, timedOut.getCause());
+
+        release.countDown();
+        assertEquals("text", leader.get(5, TimeUnit.SECONDS));
+        assertEquals("text", cache.get("key", String.class));
+    }
+
+    @Test
+    void partialResultsAreReturnedButNotKept() {
+        String partial = "page 1\n[OCR timed out on page 2]\n";
+
+        assertEquals(partial, cache.get("key", () -> partial));
+
+        verify(store, never()).save(any(), any(), any());
+        assertEquals("text", cache.get("key", () -> "text"));
+    }
+
+    private static void awaitLoads(AtomicInteger loads, int expected) throws InterruptedException {
+        for (int attempt = 0; attempt < 500 && loads.get() < expected; attempt++) {
+            Thread.sleep(10);
+        }
+        assertEquals(expected, loads.get());
+    }
+
+    private void awaitCoalesced(double expected) throws InterruptedException {
+        for (int attempt = 0; attempt < 500 && coalesced() < expected; attempt++) {
+            Thread.sleep(10);
+        }
+        assertEquals(expected, coalesced());
+    }
+
+    private double coalesced() {
+        Counter counter = meterRegistry.find("ocr.cache.coalesced").counter();
+        return counter == null ? 0 : counter.count();
+    }
+}